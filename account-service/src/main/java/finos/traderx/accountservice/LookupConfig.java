@@ -0,0 +1,16 @@
+package finos.traderx.accountservice;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import finos.traderx.accountservice.concurrent.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+public class LookupConfig {
+
+    @Bean
+    public SingleFlight<String, Boolean> personLookups(MeterRegistry registry) {
+        return new SingleFlight<>("people.logon-id", registry);
+    }
+}
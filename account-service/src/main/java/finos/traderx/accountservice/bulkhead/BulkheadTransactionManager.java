@@ -0,0 +1,55 @@
+package finos.traderx.accountservice.bulkhead;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.TransactionStatus;
+
+import finos.traderx.accountservice.bulkhead.DatabaseBulkhead.Lane;
+
+/**
+ * Takes a bulkhead permit before the delegate begins a transaction and gives
+ * it back once the transaction completes. All JPA access goes through a
+ * transaction, whether from @Transactional, a TransactionTemplate or the
+ * repositories' own defaults, so this covers it at a single point. Read-only
+ * transactions use the read lane, everything else the write lane.
+ */
+public class BulkheadTransactionManager implements PlatformTransactionManager {
+
+    private final PlatformTransactionManager delegate;
+    private final DatabaseBulkhead bulkhead;
+
+    public BulkheadTransactionManager(PlatformTransactionManager delegate, DatabaseBulkhead bulkhead) {
+        this.delegate = delegate;
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    public TransactionStatus getTransaction(TransactionDefinition definition) throws TransactionException {
+        bulkhead.acquire(definition != null && definition.isReadOnly() ? Lane.READ : Lane.WRITE);
+        try {
+            return delegate.getTransaction(definition);
+        } catch (RuntimeException | Error x) {
+            bulkhead.release();
+            throw x;
+        }
+    }
+
+    @Override
+    public void commit(TransactionStatus status) throws TransactionException {
+        try {
+            delegate.commit(status);
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    @Override
+    public void rollback(TransactionStatus status) throws TransactionException {
+        try {
+            delegate.rollback(status);
+        } finally {
+            bulkhead.release();
+        }
+    }
+}
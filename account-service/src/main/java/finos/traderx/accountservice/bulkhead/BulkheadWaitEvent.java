@@ -0,0 +1,29 @@
+package finos.traderx.accountservice.bulkhead;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event for a wait on the database bulkhead, so convoys show up in a
+ * flight recording next to pinning and socket events. Only recorded while a
+ * recording is running and the wait exceeds the threshold.
+ */
+@Name("finos.traderx.DatabaseBulkheadWait")
+@Label("Database Bulkhead Wait")
+@Description("Wait for a read or write permit before opening a transaction")
+@Category({ "TraderX", "Database" })
+@Threshold("1 ms")
+@StackTrace(true)
+class BulkheadWaitEvent extends Event {
+
+    @Label("Lane")
+    String lane;
+
+    @Label("Acquired")
+    boolean acquired;
+}
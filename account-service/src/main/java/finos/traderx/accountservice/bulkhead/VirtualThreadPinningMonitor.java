@@ -0,0 +1,89 @@
+package finos.traderx.accountservice.bulkhead;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Streams jdk.VirtualThreadPinned events from an in-process JFR recording.
+ * Virtual threads that block while pinned to their carrier, typically inside
+ * synchronized blocks in the JDBC driver, hold a carrier thread for the whole
+ * wait and can starve every other virtual thread. Each pinned period longer
+ * than the threshold is recorded in the 'jvm.threads.virtual.pinned' timer and
+ * logged with its top frames, at most once per log interval.
+ */
+public class VirtualThreadPinningMonitor implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String PINNED = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 8;
+
+    private final Duration threshold;
+    private final long logIntervalNanos;
+    private final Timer pinned;
+    private final AtomicLong nextLog = new AtomicLong(System.nanoTime());
+
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(Duration threshold, Duration logInterval, MeterRegistry registry) {
+        this.threshold = threshold;
+        this.logIntervalNanos = logInterval.toNanos();
+        this.pinned = Timer.builder("jvm.threads.virtual.pinned")
+                .description("Periods a virtual thread blocked while pinned to its carrier")
+                .register(registry);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        stream = new RecordingStream();
+        stream.enable(PINNED).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED, this::onPinned);
+        stream.startAsync();
+        log.info("Monitoring virtual thread pinning longer than {}", threshold);
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinned.record(event.getDuration().toNanos(), TimeUnit.NANOSECONDS);
+        long now = System.nanoTime();
+        long next = nextLog.get();
+        if (now - next >= 0 && nextLog.compareAndSet(next, now + logIntervalNanos)) {
+            String thread = event.getThread() == null ? "?" : event.getThread().getJavaName();
+            log.warn("Virtual thread {} pinned for {}ms at\n\t{}", thread, event.getDuration().toMillis(), frames(event));
+        }
+    }
+
+    private static String frames(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "(no stack trace)";
+        }
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        // skip the parking frames at the top, they are the same for every event
+        return frames.stream()
+                .dropWhile(f -> f.getMethod().getType().getName().startsWith("java.lang.VirtualThread")
+                        || f.getMethod().getType().getName().startsWith("jdk.internal."))
+                .limit(LOGGED_FRAMES)
+                .map(f -> f.getMethod().getType().getName() + "." + f.getMethod().getName() + ":" + f.getLineNumber())
+                .collect(Collectors.joining("\n\t"));
+    }
+
+    @Override
+    public void destroy() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+}
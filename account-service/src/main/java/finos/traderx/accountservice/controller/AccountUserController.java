@@ -2,6 +2,8 @@ package finos.traderx.accountservice.controller;
 
 import java.util.List;
 
+import finos.traderx.accountservice.concurrent.SingleFlight;
+import finos.traderx.accountservice.exceptions.DatabaseBusyException;
 import finos.traderx.accountservice.exceptions.ResourceNotFoundException;
 import finos.traderx.accountservice.model.AccountUser;
 import finos.traderx.accountservice.model.Person;
@@ -11,6 +13,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -37,6 +40,9 @@ public class AccountUserController {
 	@Autowired
 	AccountUserService accountUserService;
 
+	@Autowired
+	SingleFlight<String, Boolean> personLookups;
+
 	@Value("${people.service.url}")
 	private String peopleServiceAddress;
 
@@ -67,6 +73,13 @@ public class AccountUserController {
 	}
 
 	private boolean validatePerson(String username) {
+		if (username == null) {
+			return false;
+		}
+		return personLookups.execute(username, () -> lookupPerson(username));
+	}
+
+	private boolean lookupPerson(String username) {
 		String url = this.peopleServiceAddress + "/People/GetPerson" + "?LogonId=" + username;
 		ResponseEntity<Person> response = null;
 
@@ -91,6 +104,11 @@ public class AccountUserController {
 		return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
 	}
 
+	@ExceptionHandler(DatabaseBusyException.class)
+	public ResponseEntity<String> databaseBusy(DatabaseBusyException e) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(e.getMessage());
+	}
+
 	@ExceptionHandler(Exception.class)
 	public ResponseEntity<String> generalError(Exception e) {
 		return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
@@ -0,0 +1,50 @@
+-- Seeds a scratch database with two million trades over 1000 accounts and 500
+-- securities, then shows the plan of each trade history query shape that
+-- position-service runs (see TradeService.getTradeHistory). Every plan should
+-- say "index sorted" and scan little more than the page, unless filters it
+-- cannot seek on (side, state, or security with an account) skip many rows. Run from this directory with:
+--
+--   java -cp build/libs/database.jar org.h2.tools.RunScript -url jdbc:h2:./_data/benchmark \
+--       -user sa -password sa -script tradeHistoryBenchmark.sql -showResults
+
+RUNSCRIPT FROM 'initialSchema.sql';
+
+INSERT INTO Accounts (ID, DisplayName) SELECT X, 'Benchmark ' || X FROM SYSTEM_RANGE(1, 1000);
+
+-- four trades a second from 2024-01-01; accounts and securities spread evenly
+INSERT INTO Trades (ID, AccountID, Created, Updated, Security, Side, Quantity, State)
+SELECT 'BENCH-' || LPAD(CAST(X AS VARCHAR), 8, '0'), 1 + MOD(X * 7919, 1000),
+    DATEADD(MILLISECOND, X * 250, TIMESTAMP '2024-01-01 00:00:00'),
+    DATEADD(MILLISECOND, X * 250, TIMESTAMP '2024-01-01 00:00:00'),
+    'SEC' || MOD(X * 7, 500), CASE WHEN MOD(X / 3, 2) = 0 THEN 'Buy' ELSE 'Sell' END, 1 + MOD(X, 1000),
+    CASE MOD(X, 10) WHEN 0 THEN 'Cancelled' WHEN 1 THEN 'New' ELSE 'Settled' END
+FROM SYSTEM_RANGE(1, 2000000);
+
+ANALYZE;
+
+-- account, first page
+EXPLAIN ANALYZE SELECT ID, ACCOUNTID, SECURITY, SIDE, STATE, QUANTITY, UPDATED, CREATED FROM TRADES USE INDEX (TRADES_ACCOUNT_CREATED)
+WHERE ACCOUNTID = 17
+ORDER BY ACCOUNTID, CREATED DESC, ID DESC FETCH FIRST 100 ROWS ONLY;
+
+-- account and state, next page
+EXPLAIN ANALYZE SELECT ID, ACCOUNTID, SECURITY, SIDE, STATE, QUANTITY, UPDATED, CREATED FROM TRADES USE INDEX (TRADES_ACCOUNT_CREATED)
+WHERE ACCOUNTID = 17 AND STATE = 'Settled'
+AND CREATED <= TIMESTAMP '2024-01-03 00:00:00' AND (CREATED < TIMESTAMP '2024-01-03 00:00:00' OR ID < 'BENCH-00691200')
+ORDER BY ACCOUNTID, CREATED DESC, ID DESC FETCH FIRST 100 ROWS ONLY;
+
+-- account, security and time range
+EXPLAIN ANALYZE SELECT ID, ACCOUNTID, SECURITY, SIDE, STATE, QUANTITY, UPDATED, CREATED FROM TRADES USE INDEX (TRADES_ACCOUNT_CREATED)
+WHERE ACCOUNTID = 17 AND SECURITY = 'SEC9'
+AND CREATED >= TIMESTAMP '2024-01-02 00:00:00' AND CREATED < TIMESTAMP '2024-01-05 00:00:00'
+ORDER BY ACCOUNTID, CREATED DESC, ID DESC FETCH FIRST 100 ROWS ONLY;
+
+-- security and side
+EXPLAIN ANALYZE SELECT ID, ACCOUNTID, SECURITY, SIDE, STATE, QUANTITY, UPDATED, CREATED FROM TRADES USE INDEX (TRADES_SECURITY_CREATED)
+WHERE SECURITY = 'SEC42' AND SIDE = 'Buy'
+ORDER BY SECURITY, CREATED DESC, ID DESC FETCH FIRST 100 ROWS ONLY;
+
+-- time range only
+EXPLAIN ANALYZE SELECT ID, ACCOUNTID, SECURITY, SIDE, STATE, QUANTITY, UPDATED, CREATED FROM TRADES USE INDEX (TRADES_CREATED)
+WHERE CREATED >= TIMESTAMP '2024-01-02 00:00:00' AND CREATED < TIMESTAMP '2024-01-03 00:00:00'
+ORDER BY CREATED DESC, ID DESC FETCH FIRST 100 ROWS ONLY;
@@ -0,0 +1,37 @@
+-- Compares booking trades under random UUID ids with time ordered ids (see
+-- TimeOrderedTradeIdGenerator in trade-processor). Each table gets the same
+-- million trades, one insert per id kind; random ids land all over the primary
+-- key index while time ordered ids append at its end. Time ordered ids are
+-- stood in for by zero padded counters, which sort the same way, so this
+-- measures only where the keys land in the index, not the cost of generating
+-- either kind of id. Prints the milliseconds each insert took and the space
+-- each table uses. Run from this directory with:
+--
+--   java -cp build/libs/database.jar org.h2.tools.RunScript -url jdbc:h2:./_data/idbenchmark \
+--       -user sa -password sa -script tradeIdBenchmark.sql -showResults
+
+DROP TABLE IF EXISTS TradesByUuid;
+DROP TABLE IF EXISTS TradesByTime;
+
+CREATE TABLE TradesByUuid ( ID Varchar(50) PRIMARY KEY, AccountID INTEGER, Created TIMESTAMP, Updated TIMESTAMP, Security VARCHAR(15), Side VARCHAR(10), Quantity INTEGER, State VARCHAR(20) );
+CREATE TABLE TradesByTime ( ID Varchar(50) PRIMARY KEY, AccountID INTEGER, Created TIMESTAMP, Updated TIMESTAMP, Security VARCHAR(15), Side VARCHAR(10), Quantity INTEGER, State VARCHAR(20) );
+
+SET @START = LOCALTIMESTAMP(3);
+INSERT INTO TradesByUuid
+SELECT CAST(RANDOM_UUID() AS VARCHAR), 1 + MOD(X * 7919, 1000), LOCALTIMESTAMP, LOCALTIMESTAMP,
+    'SEC' || MOD(X * 7, 500), 'Buy', 1 + MOD(X, 1000), 'New'
+FROM SYSTEM_RANGE(1, 1000000);
+SELECT 'uuid' AS IDS, DATEDIFF(MILLISECOND, @START, LOCALTIMESTAMP(3)) AS INSERT_MILLIS;
+
+SET @START = LOCALTIMESTAMP(3);
+INSERT INTO TradesByTime
+SELECT LPAD(CAST(X AS VARCHAR), 13, '0'), 1 + MOD(X * 7919, 1000), LOCALTIMESTAMP, LOCALTIMESTAMP,
+    'SEC' || MOD(X * 7, 500), 'Buy', 1 + MOD(X, 1000), 'New'
+FROM SYSTEM_RANGE(1, 1000000);
+SELECT 'time ordered' AS IDS, DATEDIFF(MILLISECOND, @START, LOCALTIMESTAMP(3)) AS INSERT_MILLIS;
+
+SELECT 'uuid' AS IDS, DISK_SPACE_USED('TradesByUuid') AS BYTES
+UNION ALL SELECT 'time ordered', DISK_SPACE_USED('TradesByTime');
+
+DROP TABLE TradesByUuid;
+DROP TABLE TradesByTime;
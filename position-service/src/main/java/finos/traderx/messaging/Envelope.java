@@ -0,0 +1,15 @@
+package finos.traderx.messaging;
+
+import java.util.Date;
+
+public interface Envelope<T> {
+    public String getType();
+
+    public String getTopic();
+
+    public T getPayload();
+
+    public Date getDate();
+
+    public String getFrom();
+} 
\ No newline at end of file
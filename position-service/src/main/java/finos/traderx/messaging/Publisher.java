@@ -0,0 +1,20 @@
+package finos.traderx.messaging;
+
+import java.util.List;
+import java.util.Map;
+
+public interface Publisher<T> {
+    public void publish(T message) throws PubSubException;
+
+    public void publish(String topic, T message) throws PubSubException;
+
+    public void publishBatch(String topic, List<T> messages) throws PubSubException;
+
+    public void publishBatch(Map<String, List<T>> messagesByTopic) throws PubSubException;
+
+    public boolean isConnected();
+
+    public void connect() throws PubSubException;
+    
+    public void disconnect() throws PubSubException;
+}
@@ -0,0 +1,68 @@
+package finos.traderx.messaging.socketio;
+
+import java.util.Date;
+
+import finos.traderx.messaging.Envelope;
+
+public class SocketIOEnvelope<T> implements Envelope<T> {
+    /**
+     * Appended to the payload type of an envelope whose payload is a list of
+     * messages for the same topic, e.g. 'TradeOrder[]'.
+     */
+    public static final String BATCH_TYPE_SUFFIX = "[]";
+
+    private String topic;
+    private T payload;
+    private Date date = new Date();
+    private String from;
+    private String type;
+
+    public SocketIOEnvelope(){}
+    public SocketIOEnvelope(String topic, T payload) {
+        this.payload = payload;
+        this.topic = topic;
+        this.type = payload.getClass().getSimpleName();
+    }
+
+    public SocketIOEnvelope(String topic, T payload, String type) {
+        this.payload = payload;
+        this.topic = topic;
+        this.type = type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public void setPayload(T payload) {
+        this.payload = payload;
+    }
+
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+
+    public void setFrom(String from) {
+        this.from = from;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public T getPayload() {
+        return payload;
+    }
+
+    public Date getDate() {
+        return date;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+}
@@ -0,0 +1,183 @@
+package finos.traderx.messaging.socketio;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.socket.client.IO;
+import io.socket.client.Socket;
+import io.socket.emitter.Emitter;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import finos.traderx.messaging.Publisher;
+import finos.traderx.messaging.PubSubException;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Simple socketIO Publisher, which uses 3 commands - 'subscribe',
+ * 'unsubscribe', and 'publish' followed by payload
+ * Publish events consist of an envelope and an internal payload.
+ * 
+ */
+public abstract class SocketIOJSONPublisher<T> implements Publisher<T>, InitializingBean {
+    private static ObjectMapper objectMapper = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    protected IO.Options getIOOptions() {
+        return new IO.Options();
+    }
+
+    org.slf4j.Logger log = LoggerFactory.getLogger(this.getClass().getName());
+
+    boolean connected = false;
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    Socket socket;
+
+    String socketAddress = "http://localhost:3000";
+
+    public void setSocketAddress(String addr) {
+        socketAddress = addr;
+    }
+
+    String topic = "/default";
+
+    public void setTopic(String t) {
+        topic = t;
+    }
+
+    @Override
+    public void publish(T message) throws PubSubException {
+        publish(topic, message);
+    }
+
+    @Override
+    public void publish(String topic, T message) throws PubSubException {
+        if (!isConnected()) {
+            throw new PubSubException("Cannot send %s on topic %s - not connected".formatted(message, topic));
+        }
+        try {
+            SocketIOEnvelope<T> envelope = new SocketIOEnvelope<T>(topic, message);
+            JSONObject obj = toJSON(envelope);
+            log.debug("PUBLISH->" + obj);
+            socket.emit("publish", obj);
+        } catch (Exception x) {
+            x.printStackTrace();
+        }
+    }
+
+    /**
+     * Publishes all messages for a topic as a single envelope whose payload is
+     * the list of messages.
+     */
+    @Override
+    public void publishBatch(String topic, List<T> messages) throws PubSubException {
+        if (messages.isEmpty()) {
+            return;
+        }
+        if (!isConnected()) {
+            throw new PubSubException("Cannot send batch of %d on topic %s - not connected".formatted(messages.size(), topic));
+        }
+        try {
+            JSONObject obj = toJSON(batchEnvelope(topic, messages));
+            log.debug("PUBLISH->" + obj);
+            socket.emit("publish", obj);
+        } catch (Exception x) {
+            throw new PubSubException("Cannot send batch of %d on topic %s".formatted(messages.size(), topic), x);
+        }
+    }
+
+    /**
+     * Publishes one batch envelope per topic, all carried in a single
+     * 'publishBatch' frame which the feed dispatches topic by topic.
+     */
+    @Override
+    public void publishBatch(Map<String, List<T>> messagesByTopic) throws PubSubException {
+        if (!isConnected()) {
+            throw new PubSubException("Cannot send batch on topics %s - not connected".formatted(messagesByTopic.keySet()));
+        }
+        try {
+            JSONArray frames = new JSONArray();
+            for (Map.Entry<String, List<T>> entry : messagesByTopic.entrySet()) {
+                if (!entry.getValue().isEmpty()) {
+                    frames.put(toJSON(batchEnvelope(entry.getKey(), entry.getValue())));
+                }
+            }
+            if (frames.isEmpty()) {
+                return;
+            }
+            log.debug("PUBLISH BATCH->" + frames);
+            socket.emit("publishBatch", frames);
+        } catch (Exception x) {
+            throw new PubSubException("Cannot send batch on topics %s".formatted(messagesByTopic.keySet()), x);
+        }
+    }
+
+    private SocketIOEnvelope<List<T>> batchEnvelope(String topic, List<T> messages) {
+        String type = messages.get(0).getClass().getSimpleName() + SocketIOEnvelope.BATCH_TYPE_SUFFIX;
+        return new SocketIOEnvelope<List<T>>(topic, messages, type);
+    }
+
+    private JSONObject toJSON(SocketIOEnvelope<?> envelope) throws Exception {
+        String msgString = objectMapper.writerFor(SocketIOEnvelope.class).writeValueAsString(envelope);
+        return new JSONObject(msgString);
+    }
+
+    @Override
+    public void disconnect() throws PubSubException {
+        if (socket != null && isConnected())
+            socket.disconnect();
+        socket = null;
+    }
+
+    @Override
+    public void connect() throws PubSubException {
+        if (socket != null)
+            socket.disconnect();
+        try {
+            socket = internalConnect(URI.create(socketAddress));
+        } catch (Exception x) {
+            throw new PubSubException("Cannot socket connection at " + socketAddress, x);
+        }
+    }
+
+    protected Socket internalConnect(URI uri) throws Exception {
+        return IO.socket(uri, getIOOptions());
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        connect();
+        socket.on(Socket.EVENT_CONNECT, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                SocketIOJSONPublisher.this.connected = true;
+                log.info("Socket Connected {}", args);
+            }
+        });
+
+        socket.on(Socket.EVENT_DISCONNECT, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                SocketIOJSONPublisher.this.connected = false;
+                log.info("Socket Disconnected {}", args);
+            }
+        });
+
+        socket.on(Socket.EVENT_CONNECT_ERROR, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                SocketIOJSONPublisher.this.connected = false;
+                log.info("Connection Error {}", args);
+            }
+        });
+        socket.connect();
+    }
+}
\ No newline at end of file
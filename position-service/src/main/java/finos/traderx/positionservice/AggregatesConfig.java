@@ -0,0 +1,33 @@
+package finos.traderx.positionservice;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import finos.traderx.messaging.Subscriber;
+import finos.traderx.positionservice.aggregate.SecurityAggregates;
+import finos.traderx.positionservice.aggregate.SecurityEventSubscriber;
+import finos.traderx.positionservice.model.Position;
+import finos.traderx.positionservice.model.Trade;
+
+@Configuration
+@ConditionalOnProperty(name = "aggregates.enabled", havingValue = "true", matchIfMissing = true)
+public class AggregatesConfig {
+    @Value("${trade.feed.address}")
+    private String tradeFeedAddress;
+
+    @Bean
+    public Subscriber<Trade> aggregateTradeSubscriber(SecurityAggregates aggregates) {
+        SecurityEventSubscriber<Trade> subscriber = SecurityEventSubscriber.trades(aggregates);
+        subscriber.setSocketAddress(tradeFeedAddress);
+        return subscriber;
+    }
+
+    @Bean
+    public Subscriber<Position> aggregatePositionSubscriber(SecurityAggregates aggregates) {
+        SecurityEventSubscriber<Position> subscriber = SecurityEventSubscriber.positions(aggregates);
+        subscriber.setSocketAddress(tradeFeedAddress);
+        return subscriber;
+    }
+}
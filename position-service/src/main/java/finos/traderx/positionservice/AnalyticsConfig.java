@@ -0,0 +1,25 @@
+package finos.traderx.positionservice;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import finos.traderx.messaging.Subscriber;
+import finos.traderx.positionservice.analytics.TradeAnalytics;
+import finos.traderx.positionservice.analytics.TradeAnalyticsSubscriber;
+import finos.traderx.positionservice.model.Trade;
+
+@Configuration
+@ConditionalOnProperty(name = "analytics.enabled", havingValue = "true", matchIfMissing = true)
+public class AnalyticsConfig {
+    @Value("${trade.feed.address}")
+    private String tradeFeedAddress;
+
+    @Bean
+    public Subscriber<Trade> analyticsTradeSubscriber(TradeAnalytics analytics) {
+        TradeAnalyticsSubscriber subscriber = new TradeAnalyticsSubscriber(analytics);
+        subscriber.setSocketAddress(tradeFeedAddress);
+        return subscriber;
+    }
+}
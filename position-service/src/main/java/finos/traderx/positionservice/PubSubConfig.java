@@ -0,0 +1,33 @@
+package finos.traderx.positionservice;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import finos.traderx.messaging.Subscriber;
+import finos.traderx.positionservice.model.Position;
+import finos.traderx.positionservice.model.Trade;
+import finos.traderx.positionservice.readmodel.AccountEventSubscriber;
+import finos.traderx.positionservice.readmodel.AccountReadModel;
+
+@Configuration
+@ConditionalOnProperty(name = "readmodel.enabled", havingValue = "true", matchIfMissing = true)
+public class PubSubConfig {
+    @Value("${trade.feed.address}")
+    private String tradeFeedAddress;
+
+    @Bean
+    public Subscriber<Trade> tradeUpdateSubscriber(AccountReadModel readModel) {
+        AccountEventSubscriber<Trade> subscriber = AccountEventSubscriber.trades(readModel);
+        subscriber.setSocketAddress(tradeFeedAddress);
+        return subscriber;
+    }
+
+    @Bean
+    public Subscriber<Position> positionUpdateSubscriber(AccountReadModel readModel) {
+        AccountEventSubscriber<Position> subscriber = AccountEventSubscriber.positions(readModel);
+        subscriber.setSocketAddress(tradeFeedAddress);
+        return subscriber;
+    }
+}
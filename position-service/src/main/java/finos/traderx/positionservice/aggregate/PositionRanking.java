@@ -0,0 +1,126 @@
+package finos.traderx.positionservice.aggregate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import finos.traderx.positionservice.collections.SecurityDictionary;
+
+/**
+ * Positions ordered by quantity, firm-wide and per security, in skip lists
+ * that are updated as positions change, so the largest are read off either
+ * end without sorting. Flat positions are not held.
+ *
+ * Positions replace each other in Version order, as the caller applies them:
+ * Updated cannot order them, since consecutive versions often share it.
+ *
+ * Readers do not lock: a position that moves while it is read may be missed
+ * by that read or listed with its previous quantity, but only once.
+ */
+class PositionRanking {
+
+    /**
+     * Largest absolute quantity, largest long, or largest short first.
+     */
+    enum By {
+        ABS, LONG, SHORT
+    }
+
+    private final ConcurrentSkipListSet<Entry> all = new ConcurrentSkipListSet<>();
+    private final ConcurrentHashMap<Integer, ConcurrentSkipListSet<Entry>> bySecurity = new ConcurrentHashMap<>();
+
+    /**
+     * Moves the position from its previous quantity to its new one; callers
+     * serialize updates and pass only versions newer than the one held.
+     */
+    void update(int accountId, int security, long previous, long quantity, long updated, long version) {
+        if (previous == quantity && previous == 0) {
+            return;
+        }
+        NavigableSet<Entry> ofSecurity = bySecurity.computeIfAbsent(security, code -> new ConcurrentSkipListSet<>());
+        if (previous != 0) {
+            Entry old = new Entry(previous, accountId, security, 0, 0);
+            all.remove(old);
+            ofSecurity.remove(old);
+        }
+        if (quantity != 0) {
+            Entry entry = new Entry(quantity, accountId, security, updated, version);
+            all.add(entry);
+            ofSecurity.add(entry);
+        }
+    }
+
+    /**
+     * The first n positions in the given order, of one security or of all
+     * if security is 0.
+     */
+    List<Entry> top(int security, int n, By by) {
+        NavigableSet<Entry> ranked = security == 0 ? all : bySecurity.get(security);
+        List<Entry> result = new ArrayList<>(Math.min(n, 64));
+        if (ranked == null) {
+            return result;
+        }
+        // longs from the top down, shorts from the bottom up
+        Iterator<Entry> longs = by == By.SHORT ? null : ranked.descendingIterator();
+        Iterator<Entry> shorts = by == By.LONG ? null : ranked.iterator();
+        Entry nextLong = next(longs, true);
+        Entry nextShort = next(shorts, false);
+        Set<Long> listed = new HashSet<>();
+        while (result.size() < n && (nextLong != null || nextShort != null)) {
+            Entry entry;
+            if (nextShort == null || (nextLong != null && nextLong.quantity >= -nextShort.quantity)) {
+                entry = nextLong;
+                nextLong = next(longs, true);
+            } else {
+                entry = nextShort;
+                nextShort = next(shorts, false);
+            }
+            if (listed.add(SecurityDictionary.key(entry.accountId, entry.security))) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    private static Entry next(Iterator<Entry> entries, boolean positive) {
+        if (entries == null || !entries.hasNext()) {
+            return null;
+        }
+        Entry entry = entries.next();
+        return (entry.quantity > 0) == positive ? entry : null;
+    }
+
+    /**
+     * A position, ordered by quantity, then account and security; the
+     * update time and version do not take part.
+     */
+    static final class Entry implements Comparable<Entry> {
+        final long quantity;
+        final int accountId;
+        final int security;
+        final long updated;
+        final long version;
+
+        Entry(long quantity, int accountId, int security, long updated, long version) {
+            this.quantity = quantity;
+            this.accountId = accountId;
+            this.security = security;
+            this.updated = updated;
+            this.version = version;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int order = Long.compare(quantity, other.quantity);
+            if (order == 0) {
+                order = Integer.compare(accountId, other.accountId);
+            }
+            return order == 0 ? Integer.compare(security, other.security) : order;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package finos.traderx.positionservice.aggregate;
+
+/**
+ * Firm-wide net quantity of one security, and the trades booked in it over
+ * the aggregation window.
+ */
+public class SecurityAggregate {
+    private final String security;
+    private final long netQuantity;
+    private final long trades;
+    private final long volume;
+
+    SecurityAggregate(String security, long netQuantity, long trades, long volume) {
+        this.security = security;
+        this.netQuantity = netQuantity;
+        this.trades = trades;
+        this.volume = volume;
+    }
+
+    public String getSecurity() {
+        return security;
+    }
+
+    public long getNetQuantity() {
+        return netQuantity;
+    }
+
+    public long getTrades() {
+        return trades;
+    }
+
+    public long getVolume() {
+        return volume;
+    }
+}
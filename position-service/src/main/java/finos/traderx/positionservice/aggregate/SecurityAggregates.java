@@ -0,0 +1,392 @@
+package finos.traderx.positionservice.aggregate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import finos.traderx.positionservice.collections.LongLongMap;
+import finos.traderx.positionservice.collections.SecurityDictionary;
+import finos.traderx.positionservice.exceptions.AggregatesUnavailableException;
+import finos.traderx.positionservice.exceptions.InvalidQueryException;
+import finos.traderx.positionservice.exceptions.ResourceNotFoundException;
+import finos.traderx.positionservice.model.Position;
+import finos.traderx.positionservice.model.Trade;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Firm-wide net quantity per security, and trade counts and volume per
+ * security in a ring of time buckets, kept current from the trade feed.
+ *
+ * Net quantities are the sum of every account's position, each replaced by
+ * one with a higher Version, so a position seen twice or late does no harm.
+ * Updated cannot order them: consecutive versions often share it.
+ * Trades are counted when published as New, into the bucket of their
+ * creation time, once per trade id: each bucket remembers the ids it counted,
+ * so a trade published again is not counted twice. Window totals are kept
+ * alongside the buckets and reduced as buckets expire, so reads never add up
+ * buckets.
+ *
+ * Positions are also ranked by quantity as they change (see
+ * {@link PositionRanking}), for the largest positions firm-wide or of one
+ * security.
+ *
+ * Each time the feed subscriptions are all connected, positions and the
+ * trades of the window are reloaded from the database, since updates may
+ * have been missed. The feed is counted from the start of the reload, so a
+ * trade committed after the database read is still counted, and one both
+ * read and published is counted once. Until a reload completes, reads fail
+ * with 503.
+ *
+ * Reports 'aggregates.securities'.
+ */
+@Component
+public class SecurityAggregates implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(SecurityAggregates.class);
+
+    private static final int CHUNK = 1000;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${aggregates.bucket:1m}")
+    private Duration bucket;
+
+    @Value("${aggregates.buckets:60}")
+    private int bucketCount;
+
+    @Value("${stream.fetch-size:500}")
+    private int fetchSize;
+
+    private final SecurityDictionary securities = new SecurityDictionary();
+    private final PositionRanking ranking = new PositionRanking();
+    private final List<SecurityEventSubscriber<?>> feeds = new CopyOnWriteArrayList<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicBoolean reloadRequested = new AtomicBoolean();
+    private final ReentrantLock reloading = new ReentrantLock();
+    private volatile boolean ready;
+    // highest security code in use; codes are assigned from 1 without gaps
+    private volatile int maxCode;
+
+    // guarded by this; arrays are indexed by security code
+    private final LongLongMap quantities = new LongLongMap(1024);
+    private final LongLongMap versions = new LongLongMap(1024);
+    private long[] net = new long[64];
+    private long[] windowTrades = new long[64];
+    private long[] windowVolume = new long[64];
+    private int[][] slotTrades;
+    private long[][] slotVolume;
+    private List<Set<String>> slotIds;
+    private long latestBucket;
+
+    private long bucketMillis;
+    private JdbcTemplate cursor;
+    private TransactionTemplate readOnly;
+
+    /**
+     * Every security seen, ordered by ticker, with its trades over the
+     * window.
+     */
+    public synchronized List<SecurityAggregate> securities() {
+        requireReady();
+        advance(System.currentTimeMillis() / bucketMillis);
+        List<SecurityAggregate> result = new ArrayList<>();
+        for (int code = 1; code <= maxCode; code++) {
+            result.add(new SecurityAggregate(securities.security(code), net[code], windowTrades[code], windowVolume[code]));
+        }
+        result.sort((a, b) -> a.getSecurity().compareTo(b.getSecurity()));
+        return result;
+    }
+
+    /**
+     * The security's trades per bucket over the window, oldest first.
+     */
+    public synchronized List<VolumeBucket> volume(String security) {
+        requireReady();
+        int code = securities.codeIfPresent(security);
+        if (code == 0) {
+            throw new ResourceNotFoundException("No trades or positions in " + security);
+        }
+        advance(System.currentTimeMillis() / bucketMillis);
+        List<VolumeBucket> result = new ArrayList<>(bucketCount);
+        for (long b = latestBucket - bucketCount + 1; b <= latestBucket; b++) {
+            int slot = slot(b);
+            result.add(new VolumeBucket(Instant.ofEpochMilli(b * bucketMillis),
+                    code < slotTrades[slot].length ? slotTrades[slot][code] : 0,
+                    code < slotVolume[slot].length ? slotVolume[slot][code] : 0));
+        }
+        return result;
+    }
+
+    /**
+     * The n largest positions by absolute quantity, long or short, of one
+     * security or firm-wide if security is null. Reads do not wait for
+     * updates.
+     */
+    public List<Position> top(String security, int n, String by) {
+        requireReady();
+        PositionRanking.By order;
+        try {
+            order = PositionRanking.By.valueOf(by.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException x) {
+            throw new InvalidQueryException("by must be one of abs, long, short");
+        }
+        int code = 0;
+        if (security != null) {
+            code = securities.codeIfPresent(security);
+            if (code == 0) {
+                return List.of();
+            }
+        }
+        List<Position> result = new ArrayList<>();
+        for (PositionRanking.Entry entry : ranking.top(code, n, order)) {
+            Position position = new Position();
+            position.setAccountId(entry.accountId);
+            position.setSecurity(securities.security(entry.security));
+            position.setQuantity((int) entry.quantity);
+            position.setUpdated(entry.updated == Long.MIN_VALUE ? null : new Date(entry.updated));
+            position.setVersion((int) entry.version);
+            result.add(position);
+        }
+        return result;
+    }
+
+    public Duration getBucket() {
+        return bucket;
+    }
+
+    void onPosition(Position position) {
+        if (position.getAccountId() == null || position.getSecurity() == null || position.getQuantity() == null) {
+            return;
+        }
+        long time = position.getUpdated() == null ? Long.MIN_VALUE : position.getUpdated().getTime();
+        long version = position.getVersion() == null ? 0 : position.getVersion();
+        synchronized (this) {
+            applyPosition(position.getAccountId(), position.getSecurity(), position.getQuantity(), time, version);
+        }
+    }
+
+    void onTrade(Trade trade) {
+        if (!"New".equals(trade.getState()) || trade.getId() == null || trade.getSecurity() == null
+                || trade.getQuantity() == null || trade.getCreated() == null) {
+            return;
+        }
+        synchronized (this) {
+            addTrade(trade.getId(), trade.getSecurity(), trade.getQuantity(), trade.getCreated().getTime());
+        }
+    }
+
+    void addFeed(SecurityEventSubscriber<?> feed) {
+        feeds.add(feed);
+    }
+
+    void feedConnected() {
+        if (!feeds.isEmpty() && feeds.stream().allMatch(SecurityEventSubscriber::isConnected)) {
+            reloadRequested.set(true);
+            Thread.ofVirtual().name("aggregates-reload").start(this::reloadWhileRequested);
+        }
+    }
+
+    void feedDisconnected() {
+        generation.incrementAndGet();
+        ready = false;
+    }
+
+    private void reloadWhileRequested() {
+        reloading.lock();
+        try {
+            while (reloadRequested.getAndSet(false)) {
+                reload();
+            }
+        } catch (RuntimeException x) {
+            log.error("Reloading security aggregates failed; they stay unavailable until the feed reconnects", x);
+        } finally {
+            reloading.unlock();
+        }
+    }
+
+    private void reload() {
+        long current = generation.get();
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        long from;
+        synchronized (this) {
+            latestBucket = now / bucketMillis;
+            Arrays.fill(windowTrades, 0);
+            Arrays.fill(windowVolume, 0);
+            for (int slot = 0; slot < bucketCount; slot++) {
+                Arrays.fill(slotTrades[slot], 0);
+                Arrays.fill(slotVolume[slot], 0);
+                slotIds.get(slot).clear();
+            }
+            from = (latestBucket - bucketCount + 1) * bucketMillis;
+        }
+        readOnly.executeWithoutResult(status -> {
+            List<Object[]> chunk = new ArrayList<>(CHUNK);
+            cursor.query("SELECT ACCOUNTID, SECURITY, QUANTITY, UPDATED, VERSION FROM POSITIONS", rs -> {
+                Timestamp time = rs.getTimestamp(4);
+                chunk.add(new Object[] { rs.getInt(1), rs.getString(2), rs.getLong(3), time == null ? Long.MIN_VALUE : time.getTime(),
+                        rs.getLong(5) });
+                if (chunk.size() == CHUNK) {
+                    applyPositions(chunk);
+                }
+            });
+            applyPositions(chunk);
+            cursor.query("SELECT ID, SECURITY, QUANTITY, CREATED FROM TRADES USE INDEX (TRADES_CREATED) WHERE CREATED >= ?",
+                    rs -> {
+                        chunk.add(new Object[] { rs.getString(1), rs.getString(2), rs.getLong(3), rs.getTimestamp(4).getTime() });
+                        if (chunk.size() == CHUNK) {
+                            addTrades(chunk);
+                        }
+                    }, new Timestamp(from));
+            addTrades(chunk);
+        });
+        if (generation.get() == current) {
+            ready = true;
+            log.info("Loaded aggregates of {} securities in {} ms", maxCode, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private synchronized void applyPositions(List<Object[]> rows) {
+        for (Object[] row : rows) {
+            applyPosition((Integer) row[0], (String) row[1], (Long) row[2], (Long) row[3], (Long) row[4]);
+        }
+        rows.clear();
+    }
+
+    private synchronized void addTrades(List<Object[]> rows) {
+        for (Object[] row : rows) {
+            addTrade((String) row[0], (String) row[1], (Long) row[2], (Long) row[3]);
+        }
+        rows.clear();
+    }
+
+    // a newer version wins; net changes by the difference to the one replaced
+    private void applyPosition(int accountId, String security, long quantity, long time, long version) {
+        int code = securities.code(security);
+        ensureCapacity(code);
+        long key = SecurityDictionary.key(accountId, code);
+        if (version <= versions.get(key, -1)) {
+            return;
+        }
+        long previous = quantities.get(key, 0);
+        net[code] += quantity - previous;
+        quantities.put(key, quantity);
+        versions.put(key, version);
+        ranking.update(accountId, code, previous, quantity, time, version);
+    }
+
+    private void addTrade(String id, String security, long quantity, long created) {
+        long tradeBucket = created / bucketMillis;
+        advance(tradeBucket);
+        if (tradeBucket <= latestBucket - bucketCount) {
+            return;
+        }
+        int slot = slot(tradeBucket);
+        if (!slotIds.get(slot).add(id)) {
+            return;
+        }
+        int code = securities.code(security);
+        ensureCapacity(code);
+        slotTrades[slot][code]++;
+        slotVolume[slot][code] += quantity;
+        windowTrades[code]++;
+        windowVolume[code] += quantity;
+    }
+
+    // Moves the window forward to end at the given bucket, expiring the
+    // buckets that fall out of it.
+    private void advance(long toBucket) {
+        if (toBucket <= latestBucket) {
+            return;
+        }
+        for (long b = Math.max(latestBucket + 1, toBucket - bucketCount + 1); b <= toBucket; b++) {
+            int slot = slot(b);
+            int[] trades = slotTrades[slot];
+            long[] volume = slotVolume[slot];
+            for (int code = 0; code < trades.length; code++) {
+                windowTrades[code] -= trades[code];
+                windowVolume[code] -= volume[code];
+            }
+            Arrays.fill(trades, 0);
+            Arrays.fill(volume, 0);
+            slotIds.get(slot).clear();
+        }
+        latestBucket = toBucket;
+    }
+
+    private void ensureCapacity(int code) {
+        if (code > maxCode) {
+            maxCode = code;
+        }
+        if (code < net.length) {
+            return;
+        }
+        int length = Math.max(code + 1, net.length * 2);
+        net = Arrays.copyOf(net, length);
+        windowTrades = Arrays.copyOf(windowTrades, length);
+        windowVolume = Arrays.copyOf(windowVolume, length);
+        for (int slot = 0; slot < bucketCount; slot++) {
+            slotTrades[slot] = Arrays.copyOf(slotTrades[slot], length);
+            slotVolume[slot] = Arrays.copyOf(slotVolume[slot], length);
+        }
+    }
+
+    private int slot(long bucketNumber) {
+        return (int) Math.floorMod(bucketNumber, (long) bucketCount);
+    }
+
+    private void requireReady() {
+        if (!ready) {
+            throw new AggregatesUnavailableException("Security aggregates are loading");
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        bucketMillis = bucket.toMillis();
+        slotTrades = new int[bucketCount][64];
+        slotVolume = new long[bucketCount][64];
+        slotIds = new ArrayList<>(bucketCount);
+        for (int slot = 0; slot < bucketCount; slot++) {
+            slotIds.add(new HashSet<>());
+        }
+        latestBucket = System.currentTimeMillis() / bucketMillis;
+        cursor = new JdbcTemplate(dataSource);
+        cursor.setFetchSize(fetchSize);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        Gauge.builder("aggregates.securities", this, aggregates -> aggregates.maxCode)
+                .description("Securities with aggregates").register(meterRegistry);
+    }
+}
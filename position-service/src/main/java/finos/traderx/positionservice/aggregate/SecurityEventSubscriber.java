@@ -0,0 +1,54 @@
+package finos.traderx.positionservice.aggregate;
+
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+import finos.traderx.messaging.Envelope;
+import finos.traderx.messaging.socketio.SocketIOJSONSubscriber;
+import finos.traderx.positionservice.model.Position;
+import finos.traderx.positionservice.model.Trade;
+
+/**
+ * Feeds the security aggregates with one type of account update, from every
+ * /accounts/{id}/... topic.
+ */
+public class SecurityEventSubscriber<T> extends SocketIOJSONSubscriber<T> {
+
+    private static final Pattern ACCOUNT_TOPIC = Pattern.compile("/accounts/\\d+/(trades|positions)");
+
+    private final SecurityAggregates aggregates;
+    private final BiConsumer<SecurityAggregates, T> handler;
+
+    public SecurityEventSubscriber(Class<T> type, SecurityAggregates aggregates, BiConsumer<SecurityAggregates, T> handler) {
+        super(type);
+        this.aggregates = aggregates;
+        this.handler = handler;
+        setDefaultTopic("/*");
+        aggregates.addFeed(this);
+    }
+
+    public static SecurityEventSubscriber<Trade> trades(SecurityAggregates aggregates) {
+        return new SecurityEventSubscriber<>(Trade.class, aggregates, SecurityAggregates::onTrade);
+    }
+
+    public static SecurityEventSubscriber<Position> positions(SecurityAggregates aggregates) {
+        return new SecurityEventSubscriber<>(Position.class, aggregates, SecurityAggregates::onPosition);
+    }
+
+    @Override
+    public void onMessage(Envelope<?> envelope, T message) {
+        if (envelope.getTopic() != null && ACCOUNT_TOPIC.matcher(envelope.getTopic()).matches()) {
+            handler.accept(aggregates, message);
+        }
+    }
+
+    @Override
+    protected void onConnected() {
+        aggregates.feedConnected();
+    }
+
+    @Override
+    protected void onDisconnected() {
+        aggregates.feedDisconnected();
+    }
+}
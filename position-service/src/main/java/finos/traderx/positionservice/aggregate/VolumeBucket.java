@@ -0,0 +1,30 @@
+package finos.traderx.positionservice.aggregate;
+
+import java.time.Instant;
+
+/**
+ * Trades booked in one security during one time bucket.
+ */
+public class VolumeBucket {
+    private final Instant start;
+    private final long trades;
+    private final long volume;
+
+    VolumeBucket(Instant start, long trades, long volume) {
+        this.start = start;
+        this.trades = trades;
+        this.volume = volume;
+    }
+
+    public Instant getStart() {
+        return start;
+    }
+
+    public long getTrades() {
+        return trades;
+    }
+
+    public long getVolume() {
+        return volume;
+    }
+}
@@ -0,0 +1,68 @@
+package finos.traderx.positionservice.analytics;
+
+import java.util.Arrays;
+
+import finos.traderx.positionservice.collections.LongLongMap;
+
+/**
+ * Trade count, quantity and net quantity (buys less sells) per group of a
+ * scan, in arrays indexed by the group. Accounts are too sparse to index
+ * directly, so each account seen gets the next index instead.
+ */
+final class Totals {
+
+    final TradeAnalytics.GroupBy groupBy;
+    int groups;
+    long[] trades;
+    long[] quantity;
+    long[] net;
+    // when grouping by account: the account of each index, and the reverse
+    int[] accounts;
+    private final LongLongMap indexByAccount;
+
+    Totals(TradeAnalytics.GroupBy groupBy, int groups) {
+        this.groupBy = groupBy;
+        boolean byAccount = groupBy == TradeAnalytics.GroupBy.ACCOUNT;
+        this.groups = byAccount ? 0 : groups;
+        int capacity = byAccount ? 64 : groups;
+        trades = new long[capacity];
+        quantity = new long[capacity];
+        net = new long[capacity];
+        accounts = byAccount ? new int[capacity] : null;
+        indexByAccount = byAccount ? new LongLongMap(capacity) : null;
+    }
+
+    void add(int key, int tradeQuantity, int side) {
+        int index = accounts == null ? key : index(key);
+        trades[index]++;
+        quantity[index] += tradeQuantity;
+        net[index] += side == TradeColumns.SELL ? -tradeQuantity : tradeQuantity;
+    }
+
+    Totals merge(Totals other) {
+        for (int i = 0; i < other.groups; i++) {
+            int index = accounts == null ? i : index(other.accounts[i]);
+            trades[index] += other.trades[i];
+            quantity[index] += other.quantity[i];
+            net[index] += other.net[i];
+        }
+        return this;
+    }
+
+    private int index(int accountId) {
+        long index = indexByAccount.get(accountId, -1);
+        if (index >= 0) {
+            return (int) index;
+        }
+        if (groups == trades.length) {
+            int capacity = groups * 2;
+            trades = Arrays.copyOf(trades, capacity);
+            quantity = Arrays.copyOf(quantity, capacity);
+            net = Arrays.copyOf(net, capacity);
+            accounts = Arrays.copyOf(accounts, capacity);
+        }
+        accounts[groups] = accountId;
+        indexByAccount.put(accountId, groups);
+        return groups++;
+    }
+}
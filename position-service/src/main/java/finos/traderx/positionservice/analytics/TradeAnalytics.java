@@ -0,0 +1,257 @@
+package finos.traderx.positionservice.analytics;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import finos.traderx.positionservice.collections.SecurityDictionary;
+import finos.traderx.positionservice.exceptions.AggregatesUnavailableException;
+import finos.traderx.positionservice.exceptions.InvalidQueryException;
+import finos.traderx.positionservice.model.Trade;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Read-only analytical store of the trades created over the last window, held
+ * column-wise (see {@link TradeColumns}) and kept current from the trade feed,
+ * for filter and aggregate queries that scan every trade.
+ *
+ * The store is rebuilt from the database each time the feed reconnects and
+ * every rebuild interval, which also drops trades that have left the window.
+ * Trades published while a rebuild loads are applied to both the store in use
+ * and the new one, which replaces it once loaded. Until the first load after
+ * a (re)connect completes, queries fail with 503.
+ *
+ * Reports 'analytics.trades'.
+ */
+@Component
+public class TradeAnalytics implements InitializingBean {
+
+    /**
+     * What query results are totalled by.
+     */
+    public enum GroupBy {
+        NONE, SECURITY, ACCOUNT, SIDE, STATE
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(TradeAnalytics.class);
+
+    private static final String LOAD = "SELECT ID, ACCOUNTID, SECURITY, SIDE, STATE, QUANTITY, CREATED, UPDATED"
+            + " FROM TRADES USE INDEX (TRADES_CREATED) WHERE CREATED >= ?";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${analytics.window:24h}")
+    private Duration window;
+
+    @Value("${stream.fetch-size:500}")
+    private int fetchSize;
+
+    private final SecurityDictionary securities = new SecurityDictionary();
+    private final List<TradeAnalyticsSubscriber> feeds = new CopyOnWriteArrayList<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicBoolean reloadRequested = new AtomicBoolean();
+    private final ReentrantLock reloading = new ReentrantLock();
+    private volatile boolean ready;
+
+    // written under this, scanned without
+    private volatile TradeColumns columns = new TradeColumns();
+    // guarded by this; trades published while a rebuild loads
+    private List<Trade> pending;
+
+    private JdbcTemplate cursor;
+    private TransactionTemplate readOnly;
+
+    /**
+     * Totals of the trades matching every given criterion, created in
+     * [from, to), grouped as asked. Groups without trades are left out.
+     */
+    public List<TradeTotals> query(Integer accountId, String security, String side, String state, Instant from,
+            Instant to, GroupBy groupBy) {
+        if (!ready) {
+            throw new AggregatesUnavailableException("Trade analytics are loading");
+        }
+        TradeFilter filter = new TradeFilter();
+        if (accountId != null) {
+            filter.anyAccount = false;
+            filter.accountId = accountId;
+        }
+        if (security != null) {
+            filter.security = securities.codeIfPresent(security);
+            if (filter.security == 0) {
+                return List.of();
+            }
+        }
+        if (side != null) {
+            filter.sides = 1 << code(TradeColumns.SIDES, "side", side);
+        }
+        if (state != null) {
+            filter.states = 1 << code(TradeColumns.STATES, "state", state);
+        }
+        if (from != null) {
+            filter.from = from.toEpochMilli();
+        }
+        if (to != null) {
+            filter.to = to.toEpochMilli();
+        }
+        return results(columns.scan(filter, groupBy));
+    }
+
+    private static int code(String[] names, String parameter, String value) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(value)) {
+                return i;
+            }
+        }
+        throw new InvalidQueryException(parameter + " must be one of " + String.join(", ", names));
+    }
+
+    private List<TradeTotals> results(Totals totals) {
+        GroupBy groupBy = totals.groupBy;
+        List<TradeTotals> result = new ArrayList<>();
+        for (int i = 0; i < totals.groups; i++) {
+            if (totals.trades[i] == 0) {
+                continue;
+            }
+            result.add(new TradeTotals(groupBy == GroupBy.ACCOUNT ? totals.accounts[i] : null,
+                    groupBy == GroupBy.SECURITY ? securities.security(i) : null,
+                    groupBy == GroupBy.SIDE ? TradeColumns.SIDES[i] : null,
+                    groupBy == GroupBy.STATE ? TradeColumns.STATES[i] : null,
+                    totals.trades[i], totals.quantity[i], totals.net[i]));
+        }
+        if (groupBy == GroupBy.ACCOUNT) {
+            result.sort(Comparator.comparing(TradeTotals::getAccountId));
+        } else if (groupBy == GroupBy.SECURITY) {
+            result.sort(Comparator.comparing(TradeTotals::getSecurity));
+        }
+        return result;
+    }
+
+    void onTrade(Trade trade) {
+        if (trade.getId() == null || trade.getAccountId() == null || trade.getSecurity() == null
+                || trade.getQuantity() == null || trade.getCreated() == null) {
+            return;
+        }
+        synchronized (this) {
+            put(columns, trade);
+            if (pending != null) {
+                pending.add(trade);
+            }
+        }
+    }
+
+    private void put(TradeColumns target, Trade trade) {
+        long created = trade.getCreated().getTime();
+        target.put(trade.getId(), trade.getAccountId(), securities.code(trade.getSecurity()), trade.getQuantity(),
+                created, trade.getUpdated() == null ? created : trade.getUpdated().getTime(),
+                TradeColumns.side(trade.getSide()), TradeColumns.state(trade.getState()));
+    }
+
+    void addFeed(TradeAnalyticsSubscriber feed) {
+        feeds.add(feed);
+    }
+
+    void feedConnected() {
+        if (!feeds.isEmpty() && feeds.stream().allMatch(TradeAnalyticsSubscriber::isConnected)) {
+            requestReload();
+        }
+    }
+
+    void feedDisconnected() {
+        generation.incrementAndGet();
+        ready = false;
+    }
+
+    @Scheduled(initialDelayString = "${analytics.rebuild-interval:1h}", fixedDelayString = "${analytics.rebuild-interval:1h}")
+    public void scheduledRebuild() {
+        if (ready) {
+            requestReload();
+        }
+    }
+
+    private void requestReload() {
+        reloadRequested.set(true);
+        Thread.ofVirtual().name("analytics-reload").start(this::reloadWhileRequested);
+    }
+
+    private void reloadWhileRequested() {
+        reloading.lock();
+        try {
+            while (reloadRequested.getAndSet(false)) {
+                reload();
+            }
+        } catch (RuntimeException x) {
+            log.error("Loading trade analytics failed; they stay as they are until the next rebuild or reconnect", x);
+            synchronized (this) {
+                pending = null;
+            }
+        } finally {
+            reloading.unlock();
+        }
+    }
+
+    private void reload() {
+        long current = generation.get();
+        long start = System.nanoTime();
+        TradeColumns loaded = new TradeColumns();
+        synchronized (this) {
+            pending = new ArrayList<>();
+        }
+        Timestamp from = new Timestamp(System.currentTimeMillis() - window.toMillis());
+        readOnly.executeWithoutResult(status -> cursor.query(LOAD, rs -> {
+            Timestamp created = rs.getTimestamp(7);
+            Timestamp updated = rs.getTimestamp(8);
+            loaded.put(rs.getString(1), rs.getInt(2), securities.code(rs.getString(3)), rs.getInt(6), created.getTime(),
+                    updated == null ? created.getTime() : updated.getTime(),
+                    TradeColumns.side(rs.getString(4)), TradeColumns.state(rs.getString(5)));
+        }, from));
+        synchronized (this) {
+            for (Trade trade : pending) {
+                put(loaded, trade);
+            }
+            pending = null;
+            columns = loaded;
+        }
+        if (generation.get() == current) {
+            ready = true;
+        }
+        log.info("Loaded {} trades for analytics in {} ms", loaded.rows(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        cursor = new JdbcTemplate(dataSource);
+        cursor.setFetchSize(fetchSize);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        Gauge.builder("analytics.trades", this, analytics -> analytics.columns.rows())
+                .description("Trades held for analytics").register(meterRegistry);
+    }
+}
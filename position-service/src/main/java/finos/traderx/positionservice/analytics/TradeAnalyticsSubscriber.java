@@ -0,0 +1,42 @@
+package finos.traderx.positionservice.analytics;
+
+import java.util.regex.Pattern;
+
+import finos.traderx.messaging.Envelope;
+import finos.traderx.messaging.socketio.SocketIOJSONSubscriber;
+import finos.traderx.positionservice.model.Trade;
+
+/**
+ * Feeds the analytical trade store with the trades published on every
+ * /accounts/{id}/trades topic.
+ */
+public class TradeAnalyticsSubscriber extends SocketIOJSONSubscriber<Trade> {
+
+    private static final Pattern TRADES_TOPIC = Pattern.compile("/accounts/\\d+/trades");
+
+    private final TradeAnalytics analytics;
+
+    public TradeAnalyticsSubscriber(TradeAnalytics analytics) {
+        super(Trade.class);
+        this.analytics = analytics;
+        setDefaultTopic("/*");
+        analytics.addFeed(this);
+    }
+
+    @Override
+    public void onMessage(Envelope<?> envelope, Trade message) {
+        if (envelope.getTopic() != null && TRADES_TOPIC.matcher(envelope.getTopic()).matches()) {
+            analytics.onTrade(message);
+        }
+    }
+
+    @Override
+    protected void onConnected() {
+        analytics.feedConnected();
+    }
+
+    @Override
+    protected void onDisconnected() {
+        analytics.feedDisconnected();
+    }
+}
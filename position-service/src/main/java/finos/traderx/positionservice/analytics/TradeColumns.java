@@ -0,0 +1,178 @@
+package finos.traderx.positionservice.analytics;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import finos.traderx.positionservice.collections.LongLongMap;
+
+/**
+ * Trades held column-wise in fixed-size segments of primitive arrays: account
+ * id, dictionary-encoded security, quantity, created and updated epoch
+ * millis, and side and state packed into one byte. A row takes 29 bytes, plus
+ * its entry in the id index, where a Trade entity with its boxed fields,
+ * Dates and Strings takes several hundred.
+ *
+ * One thread writes (callers synchronize), any number scan. Rows are appended
+ * and their columns written before the row count is raised, so a scan sees
+ * every row up to the count it read fully written. Only the state of a row
+ * changes afterwards, as a single byte.
+ */
+final class TradeColumns {
+
+    static final int SEGMENT_BITS = 16;
+    static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+
+    static final int BUY = 0;
+    static final int SELL = 1;
+    static final String[] SIDES = { "Buy", "Sell" };
+    // other covers states this store does not know, such as UNSET
+    static final String[] STATES = { "New", "Processing", "Settled", "Cancelled", "Other" };
+    static final int OTHER_STATE = 4;
+
+    private volatile Segment[] segments = new Segment[0];
+    private volatile int rows;
+    private volatile int maxSecurity;
+    // id hash -> row, written only by the writer
+    private final LongLongMap rowsById = new LongLongMap(SEGMENT_SIZE);
+
+    int rows() {
+        return rows;
+    }
+
+    /**
+     * Adds the trade, or updates the state of the row already holding it if
+     * this is a later version: updated later, or at the same time but further
+     * along New, Processing, Settled/Cancelled.
+     */
+    void put(String id, int accountId, int security, int quantity, long created, long updated, int side, int state) {
+        long key = idHash(id);
+        long row = rowsById.get(key, -1);
+        if (row >= 0) {
+            Segment segment = segments[(int) (row >>> SEGMENT_BITS)];
+            int i = (int) row & (SEGMENT_SIZE - 1);
+            int held = segment.flags[i] >>> 1;
+            if (updated > segment.updated[i] || (updated == segment.updated[i] && rank(state) > rank(held))) {
+                segment.updated[i] = updated;
+                segment.flags[i] = (byte) (state << 1 | side);
+            }
+            return;
+        }
+        int n = rows;
+        if ((n & (SEGMENT_SIZE - 1)) == 0) {
+            Segment[] grown = Arrays.copyOf(segments, segments.length + 1);
+            grown[grown.length - 1] = new Segment();
+            segments = grown;
+        }
+        Segment segment = segments[n >>> SEGMENT_BITS];
+        int i = n & (SEGMENT_SIZE - 1);
+        segment.accounts[i] = accountId;
+        segment.securities[i] = security;
+        segment.quantities[i] = quantity;
+        segment.created[i] = created;
+        segment.updated[i] = updated;
+        segment.flags[i] = (byte) (state << 1 | side);
+        rowsById.put(key, n);
+        if (security > maxSecurity) {
+            maxSecurity = security;
+        }
+        rows = n + 1;
+    }
+
+    /**
+     * Totals of the rows matching the filter, scanning segments in parallel.
+     */
+    Totals scan(TradeFilter filter, TradeAnalytics.GroupBy groupBy) {
+        int n = rows;
+        Segment[] scanned = segments;
+        int groups = switch (groupBy) {
+            case NONE -> 1;
+            case SECURITY -> maxSecurity + 1;
+            case SIDE -> SIDES.length;
+            case STATE -> STATES.length;
+            case ACCOUNT -> 0;
+        };
+        int segmentCount = (n + SEGMENT_SIZE - 1) >>> SEGMENT_BITS;
+        return IntStream.range(0, segmentCount).parallel()
+                .mapToObj(s -> {
+                    Totals totals = new Totals(groupBy, groups);
+                    scanned[s].scan(Math.min(SEGMENT_SIZE, n - (s << SEGMENT_BITS)), filter, totals);
+                    return totals;
+                })
+                .reduce(Totals::merge)
+                .orElseGet(() -> new Totals(groupBy, groups));
+    }
+
+    static int side(String side) {
+        return "Sell".equals(side) ? SELL : BUY;
+    }
+
+    static int state(String state) {
+        for (int i = 0; i < OTHER_STATE; i++) {
+            if (STATES[i].equals(state)) {
+                return i;
+            }
+        }
+        return OTHER_STATE;
+    }
+
+    private static int rank(int state) {
+        return state == OTHER_STATE ? -1 : state;
+    }
+
+    // 64-bit FNV-1a with a final mix. Ids are only held as this hash, so two
+    // ids colliding would merge their rows; with ten million trades the odds
+    // of any collision are around one in a million.
+    static long idHash(String id) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            h = (h ^ id.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        // Long.MIN_VALUE marks empty slots in the index
+        return h == Long.MIN_VALUE ? h + 1 : h;
+    }
+
+    private static final class Segment {
+        final int[] accounts = new int[SEGMENT_SIZE];
+        final int[] securities = new int[SEGMENT_SIZE];
+        final int[] quantities = new int[SEGMENT_SIZE];
+        final long[] created = new long[SEGMENT_SIZE];
+        final long[] updated = new long[SEGMENT_SIZE];
+        // state << 1 | side
+        final byte[] flags = new byte[SEGMENT_SIZE];
+
+        // Branch-free predicate over primitive columns, with the filter held
+        // in locals, so the loop compiles to straight array reads.
+        void scan(int limit, TradeFilter filter, Totals totals) {
+            long from = filter.from;
+            long to = filter.to;
+            boolean anyAccount = filter.anyAccount;
+            int account = filter.accountId;
+            boolean anySecurity = filter.security == 0;
+            int security = filter.security;
+            int sides = filter.sides;
+            int states = filter.states;
+            TradeAnalytics.GroupBy groupBy = totals.groupBy;
+            for (int i = 0; i < limit; i++) {
+                int flag = flags[i];
+                long time = created[i];
+                if (time >= from & time < to
+                        & (anyAccount | accounts[i] == account)
+                        & (anySecurity | securities[i] == security)
+                        & ((sides >>> (flag & 1)) & 1) != 0
+                        & ((states >>> (flag >>> 1)) & 1) != 0) {
+                    int key = switch (groupBy) {
+                        case NONE -> 0;
+                        case SECURITY -> securities[i];
+                        case ACCOUNT -> accounts[i];
+                        case SIDE -> flag & 1;
+                        case STATE -> flag >>> 1;
+                    };
+                    totals.add(key, quantities[i], flag & 1);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package finos.traderx.positionservice.analytics;
+
+/**
+ * Which rows a scan counts: created in [from, to), of one account and one
+ * security unless any, and with side and state in the given bit sets.
+ */
+final class TradeFilter {
+    long from = Long.MIN_VALUE;
+    long to = Long.MAX_VALUE;
+    boolean anyAccount = true;
+    int accountId;
+    // security code, 0 for any
+    int security;
+    // bit per side and per state code
+    int sides = (1 << TradeColumns.SIDES.length) - 1;
+    int states = (1 << TradeColumns.STATES.length) - 1;
+}
@@ -0,0 +1,57 @@
+package finos.traderx.positionservice.analytics;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Count, quantity and net quantity (buys less sells) of the trades in one
+ * group. Only the field the trades were grouped by is set.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TradeTotals {
+    private final Integer accountId;
+    private final String security;
+    private final String side;
+    private final String state;
+    private final long trades;
+    private final long quantity;
+    private final long netQuantity;
+
+    TradeTotals(Integer accountId, String security, String side, String state, long trades, long quantity,
+            long netQuantity) {
+        this.accountId = accountId;
+        this.security = security;
+        this.side = side;
+        this.state = state;
+        this.trades = trades;
+        this.quantity = quantity;
+        this.netQuantity = netQuantity;
+    }
+
+    public Integer getAccountId() {
+        return accountId;
+    }
+
+    public String getSecurity() {
+        return security;
+    }
+
+    public String getSide() {
+        return side;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public long getTrades() {
+        return trades;
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+
+    public long getNetQuantity() {
+        return netQuantity;
+    }
+}
@@ -0,0 +1,132 @@
+package finos.traderx.positionservice.bulkhead;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import finos.traderx.positionservice.exceptions.DatabaseBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Limits how many threads may hold a database connection at once, with
+ * separate read and write lanes so a burst of queries cannot take every
+ * connection away from writers. Each lane is a fair semaphore: waiters are
+ * served in arrival order and give up after the maximum wait, rather than
+ * thousands of virtual threads piling up on the connection pool where the
+ * queueing is invisible.
+ *
+ * A thread that already holds a permit is let through, so nested
+ * transactions and repository calls inside a transaction take only one.
+ *
+ * Reports a 'db.bulkhead.wait' timer with a percentile histogram,
+ * 'db.bulkhead.available' and 'db.bulkhead.queued' gauges and a
+ * 'db.bulkhead.rejected' counter, all tagged with the lane.
+ */
+public class DatabaseBulkhead {
+
+    public enum Lane {
+        READ, WRITE;
+
+        String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    private static final ThreadLocal<Held> held = new ThreadLocal<>();
+
+    private final LaneState read;
+    private final LaneState write;
+    private final long maxWaitNanos;
+
+    public DatabaseBulkhead(int readPermits, int writePermits, Duration maxWait, MeterRegistry registry) {
+        this.read = new LaneState(Lane.READ, readPermits, registry);
+        this.write = new LaneState(Lane.WRITE, writePermits, registry);
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    /**
+     * Takes a permit in the given lane, or joins the one the current thread
+     * already holds. Every call must be matched by {@link #release()}.
+     *
+     * @throws DatabaseBusyException if no permit frees up within the maximum wait
+     */
+    public void acquire(Lane lane) {
+        Held current = held.get();
+        if (current != null) {
+            current.depth++;
+            return;
+        }
+        LaneState state = lane == Lane.READ ? read : write;
+        BulkheadWaitEvent event = new BulkheadWaitEvent();
+        event.lane = lane.tag();
+        event.begin();
+        long start = System.nanoTime();
+        boolean acquired = false;
+        try {
+            acquired = state.semaphore.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+        } finally {
+            state.wait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            event.end();
+            event.acquired = acquired;
+            if (event.shouldCommit()) {
+                event.commit();
+            }
+        }
+        if (!acquired) {
+            state.rejected.increment();
+            throw new DatabaseBusyException("No database connection available for " + lane.tag()
+                    + " within " + Duration.ofNanos(maxWaitNanos).toMillis() + "ms");
+        }
+        held.set(new Held(state));
+    }
+
+    public void release() {
+        Held current = held.get();
+        if (current == null) {
+            return;
+        }
+        if (--current.depth == 0) {
+            held.remove();
+            current.lane.semaphore.release();
+        }
+    }
+
+    private static final class Held {
+        final LaneState lane;
+        int depth = 1;
+
+        Held(LaneState lane) {
+            this.lane = lane;
+        }
+    }
+
+    private static final class LaneState {
+        final Semaphore semaphore;
+        final Timer wait;
+        final Counter rejected;
+
+        LaneState(Lane lane, int permits, MeterRegistry registry) {
+            this.semaphore = new Semaphore(permits, true);
+            this.wait = Timer.builder("db.bulkhead.wait")
+                    .description("Time spent waiting for a database bulkhead permit")
+                    .tag("lane", lane.tag())
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.rejected = Counter.builder("db.bulkhead.rejected")
+                    .description("Callers that gave up waiting for a permit")
+                    .tag("lane", lane.tag())
+                    .register(registry);
+            Gauge.builder("db.bulkhead.available", semaphore, Semaphore::availablePermits)
+                    .description("Permits currently free").tag("lane", lane.tag()).register(registry);
+            Gauge.builder("db.bulkhead.queued", semaphore, Semaphore::getQueueLength)
+                    .description("Threads waiting for a permit").tag("lane", lane.tag()).register(registry);
+            Gauge.builder("db.bulkhead.permits", () -> permits)
+                    .description("Configured permits").tag("lane", lane.tag()).register(registry);
+        }
+    }
+}
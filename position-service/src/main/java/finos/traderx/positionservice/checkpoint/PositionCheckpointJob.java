@@ -0,0 +1,146 @@
+package finos.traderx.positionservice.checkpoint;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Writes position checkpoints: every interval, the positions that changed
+ * since the last checkpoint run, as of a time settle-delay in the past so
+ * that trades booked up to then have committed.
+ *
+ * A run reads only the trades created, and those cancelled, since the last
+ * run, and adds their quantities to the checkpointed positions. Runs lock
+ * the latest run row, so instances sharing the database take turns.
+ */
+@Component
+public class PositionCheckpointJob implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PositionCheckpointJob.class);
+
+    private static final String CREATED = "SELECT ACCOUNTID, SECURITY, SUM(CASE WHEN SIDE = 'Buy' THEN QUANTITY ELSE -QUANTITY END), MAX(CREATED)"
+            + " FROM TRADES USE INDEX (TRADES_CREATED) WHERE CREATED > ? AND CREATED <= ? GROUP BY ACCOUNTID, SECURITY";
+
+    private static final String CANCELLED = "SELECT ACCOUNTID, SECURITY, SUM(CASE WHEN SIDE = 'Buy' THEN -QUANTITY ELSE QUANTITY END), MAX(UPDATED)"
+            + " FROM TRADES USE INDEX (TRADES_STATE_UPDATED) WHERE STATE = 'Cancelled' AND UPDATED > ? AND UPDATED <= ?"
+            + " GROUP BY ACCOUNTID, SECURITY";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${checkpoint.enabled:true}")
+    private boolean enabled;
+
+    @Value("${checkpoint.settle-delay:1m}")
+    private Duration settleDelay;
+
+    @Value("${checkpoint.batch-size:500}")
+    private int batchSize;
+
+    private TransactionTemplate transaction;
+
+    @Override
+    public void afterPropertiesSet() {
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(initialDelayString = "${checkpoint.initial-delay:1m}", fixedDelayString = "${checkpoint.interval:5m}")
+    public void scheduledCheckpoint() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            checkpoint();
+        } catch (RuntimeException x) {
+            log.error("Position checkpoint failed", x);
+        }
+    }
+
+    /**
+     * Writes one checkpoint unless the last one is younger than the settle
+     * delay.
+     *
+     * @return the number of positions written
+     */
+    public int checkpoint() {
+        return transaction.execute(status -> {
+            Timestamp previous = jdbcTemplate.queryForObject(
+                    "SELECT ASOF FROM POSITIONCHECKPOINTRUNS ORDER BY ASOF DESC FETCH FIRST ROW ONLY FOR UPDATE", Timestamp.class);
+            Timestamp next = new Timestamp(System.currentTimeMillis() - settleDelay.toMillis());
+            if (!next.after(previous)) {
+                return 0;
+            }
+            long start = System.nanoTime();
+            // by account, then security
+            Map<Integer, Map<String, Change>> changes = new TreeMap<>();
+            collect(CREATED, previous, next, changes);
+            collect(CANCELLED, previous, next, changes);
+            addCheckpointed(changes, previous);
+            List<Object[]> rows = new ArrayList<>();
+            changes.forEach((accountId, positions) -> positions.forEach((security, change) -> rows.add(
+                    new Object[] { accountId, security, next, Math.toIntExact(change.quantity), change.updated })));
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO POSITIONCHECKPOINTS (ACCOUNTID, SECURITY, ASOF, QUANTITY, UPDATED) VALUES (?, ?, ?, ?, ?)", rows);
+            jdbcTemplate.update("INSERT INTO POSITIONCHECKPOINTRUNS (ASOF, COMPLETED) VALUES (?, ?)", next,
+                    new Timestamp(System.currentTimeMillis()));
+            log.info("Checkpointed {} changed positions as of {} in {} ms", rows.size(), next,
+                    (System.nanoTime() - start) / 1_000_000);
+            return rows.size();
+        });
+    }
+
+    private void collect(String sql, Timestamp from, Timestamp to, Map<Integer, Map<String, Change>> changes) {
+        jdbcTemplate.query(sql, rs -> {
+            Change change = changes.computeIfAbsent(rs.getInt(1), id -> new HashMap<>())
+                    .computeIfAbsent(rs.getString(2), security -> new Change());
+            change.quantity += rs.getLong(3);
+            Timestamp updated = rs.getTimestamp(4);
+            if (change.updated == null || updated.after(change.updated)) {
+                change.updated = updated;
+            }
+        }, from, to);
+    }
+
+    // Adds each changed position's quantity at the previous checkpoint, the
+    // latest row for it at or before then.
+    private void addCheckpointed(Map<Integer, Map<String, Change>> changes, Timestamp previous) {
+        List<Integer> accounts = new ArrayList<>(changes.keySet());
+        for (int from = 0; from < accounts.size(); from += batchSize) {
+            List<Integer> batch = accounts.subList(from, Math.min(from + batchSize, accounts.size()));
+            List<Object> args = new ArrayList<>(batch);
+            args.add(previous);
+            jdbcTemplate.query("SELECT ACCOUNTID, SECURITY, QUANTITY FROM POSITIONCHECKPOINTS C WHERE ACCOUNTID IN ("
+                    + String.join(",", Collections.nCopies(batch.size(), "?")) + ") AND ASOF = (SELECT MAX(ASOF)"
+                    + " FROM POSITIONCHECKPOINTS WHERE ACCOUNTID = C.ACCOUNTID AND SECURITY = C.SECURITY AND ASOF <= ?)", rs -> {
+                        Change change = changes.get(rs.getInt(1)).get(rs.getString(2));
+                        if (change != null) {
+                            change.quantity += rs.getLong(3);
+                        }
+                    }, args.toArray());
+        }
+    }
+
+    private static final class Change {
+        long quantity;
+        Timestamp updated;
+    }
+}
@@ -0,0 +1,92 @@
+package finos.traderx.positionservice.checkpoint;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import finos.traderx.positionservice.model.Position;
+
+/**
+ * Rebuilds an account's positions as of a past time from the last
+ * checkpoint run at or before it, plus the trades created or cancelled
+ * between that run and the requested time. Only that slice of trades is
+ * read, however far back the time is.
+ */
+@Component
+public class PositionHistory implements InitializingBean {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readOnly;
+
+    @Override
+    public void afterPropertiesSet() {
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    /**
+     * The account's positions as of the given time, ordered by security;
+     * updated is the time of the last trade that changed each one.
+     */
+    public List<Position> positionsAsOf(int accountId, Instant asOf) {
+        Timestamp time = Timestamp.from(asOf);
+        return readOnly.execute(status -> {
+            Timestamp checkpoint = jdbcTemplate.queryForObject(
+                    "SELECT MAX(ASOF) FROM POSITIONCHECKPOINTRUNS WHERE ASOF <= ?", Timestamp.class, time);
+            Map<String, Position> positions = new TreeMap<>();
+            if (checkpoint != null) {
+                jdbcTemplate.query("SELECT SECURITY, QUANTITY, UPDATED FROM POSITIONCHECKPOINTS C WHERE ACCOUNTID = ?"
+                        + " AND ASOF = (SELECT MAX(ASOF) FROM POSITIONCHECKPOINTS WHERE ACCOUNTID = C.ACCOUNTID"
+                        + " AND SECURITY = C.SECURITY AND ASOF <= ?)", rs -> {
+                            add(positions, accountId, rs.getString(1), rs.getLong(2), rs.getTimestamp(3));
+                        }, accountId, checkpoint);
+            } else {
+                // no run yet at or before the requested time: replay everything
+                checkpoint = new Timestamp(0);
+            }
+            jdbcTemplate.query("SELECT SECURITY, SIDE, QUANTITY, CREATED FROM TRADES USE INDEX (TRADES_ACCOUNT_CREATED)"
+                    + " WHERE ACCOUNTID = ? AND CREATED > ? AND CREATED <= ?", rs -> {
+                        int quantity = rs.getInt(3);
+                        add(positions, accountId, rs.getString(1), "Buy".equals(rs.getString(2)) ? quantity : -quantity,
+                                rs.getTimestamp(4));
+                    }, accountId, checkpoint, time);
+            jdbcTemplate.query("SELECT SECURITY, SIDE, QUANTITY, UPDATED FROM TRADES USE INDEX (TRADES_STATE_UPDATED)"
+                    + " WHERE STATE = 'Cancelled' AND UPDATED > ? AND UPDATED <= ? AND ACCOUNTID = ?", rs -> {
+                        int quantity = rs.getInt(3);
+                        add(positions, accountId, rs.getString(1), "Buy".equals(rs.getString(2)) ? -quantity : quantity,
+                                rs.getTimestamp(4));
+                    }, checkpoint, time, accountId);
+            return new ArrayList<>(positions.values());
+        });
+    }
+
+    private static void add(Map<String, Position> positions, int accountId, String security, long quantity,
+            Timestamp updated) {
+        Position position = positions.computeIfAbsent(security, key -> {
+            Position created = new Position();
+            created.setAccountId(accountId);
+            created.setSecurity(key);
+            created.setQuantity(0);
+            return created;
+        });
+        position.setQuantity(Math.toIntExact(position.getQuantity() + quantity));
+        if (position.getUpdated() == null || updated.after(position.getUpdated())) {
+            position.setUpdated(updated);
+        }
+    }
+}
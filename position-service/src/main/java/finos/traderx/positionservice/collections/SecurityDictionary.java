@@ -0,0 +1,51 @@
+package finos.traderx.positionservice.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns each ticker a small int code, so positions can be keyed by a single
+ * long made of the account id and the security code. Codes start at 1 and are
+ * never reused.
+ */
+public class SecurityDictionary {
+
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    // index = code - 1
+    private final List<String> tickers = new ArrayList<>();
+
+    public int code(String security) {
+        Integer code = codes.get(security);
+        return code != null ? code : codes.computeIfAbsent(security, this::assign);
+    }
+
+    /**
+     * @return the code, or 0 if the security has not been seen
+     */
+    public int codeIfPresent(String security) {
+        Integer code = codes.get(security);
+        return code != null ? code : 0;
+    }
+
+    public synchronized String security(int code) {
+        return tickers.get(code - 1);
+    }
+
+    public static long key(int accountId, int securityCode) {
+        return ((long) accountId << 32) | (securityCode & 0xffffffffL);
+    }
+
+    public static int accountId(long key) {
+        return (int) (key >>> 32);
+    }
+
+    public static int securityCode(long key) {
+        return (int) key;
+    }
+
+    private synchronized int assign(String security) {
+        tickers.add(security);
+        return tickers.size();
+    }
+}
@@ -0,0 +1,60 @@
+package finos.traderx.positionservice.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import finos.traderx.positionservice.aggregate.SecurityAggregate;
+import finos.traderx.positionservice.aggregate.SecurityAggregates;
+import finos.traderx.positionservice.aggregate.VolumeBucket;
+import finos.traderx.positionservice.exceptions.AggregatesUnavailableException;
+import finos.traderx.positionservice.exceptions.ResourceNotFoundException;
+
+@CrossOrigin("*")
+@RestController
+@RequestMapping(value="/aggregates", produces="application/json")
+public class AggregatesController {
+
+	@Autowired
+	SecurityAggregates securityAggregates;
+
+	/**
+	 * Net quantity, trades and volume of every security, firm-wide, over
+	 * the aggregation window.
+	 */
+	@GetMapping("/securities")
+	public ResponseEntity<List<SecurityAggregate>> getSecurities() {
+		return ResponseEntity.ok(this.securityAggregates.securities());
+	}
+
+	/**
+	 * Trades and volume of one security per time bucket, oldest first.
+	 */
+	@GetMapping("/securities/{ticker}/volume")
+	public ResponseEntity<List<VolumeBucket>> getVolume(@PathVariable String ticker) {
+		return ResponseEntity.ok(this.securityAggregates.volume(ticker));
+	}
+
+	@ExceptionHandler(ResourceNotFoundException.class)
+	public ResponseEntity<String> resourceNotFoundExceptionMapper(ResourceNotFoundException e) {
+		return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+	}
+
+	@ExceptionHandler(AggregatesUnavailableException.class)
+	public ResponseEntity<String> unavailable(AggregatesUnavailableException e) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+	}
+
+	@ExceptionHandler(Exception.class)
+	public ResponseEntity<String> generalError(Exception e) {
+		return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+	}
+}
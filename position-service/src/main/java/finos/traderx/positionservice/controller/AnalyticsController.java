@@ -0,0 +1,66 @@
+package finos.traderx.positionservice.controller;
+
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import finos.traderx.positionservice.analytics.TradeAnalytics;
+import finos.traderx.positionservice.analytics.TradeTotals;
+import finos.traderx.positionservice.exceptions.AggregatesUnavailableException;
+import finos.traderx.positionservice.exceptions.InvalidQueryException;
+
+@CrossOrigin("*")
+@RestController
+@RequestMapping(value="/analytics", produces="application/json")
+public class AnalyticsController {
+
+	@Autowired
+	TradeAnalytics tradeAnalytics;
+
+	/**
+	 * Count, quantity and net quantity of the trades matching any of
+	 * account, security, side, state and created time (from inclusive, to
+	 * exclusive, as ISO-8601 instants), in total or grouped by security,
+	 * account, side or state. Covers the trades of the analytics window.
+	 */
+	@GetMapping("/trades")
+	public ResponseEntity<List<TradeTotals>> getTradeTotals(@RequestParam(required = false) Integer accountId,
+			@RequestParam(required = false) String security, @RequestParam(required = false) String side,
+			@RequestParam(required = false) String state, @RequestParam(required = false) String from,
+			@RequestParam(required = false) String to, @RequestParam(defaultValue = "none") String groupBy) {
+		return ResponseEntity.ok(this.tradeAnalytics.query(accountId, security, side, state,
+				QueryParams.instant("from", from), QueryParams.instant("to", to), groupBy(groupBy)));
+	}
+
+	private static TradeAnalytics.GroupBy groupBy(String value) {
+		try {
+			return TradeAnalytics.GroupBy.valueOf(value.toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException x) {
+			throw new InvalidQueryException("groupBy must be one of none, security, account, side, state");
+		}
+	}
+
+	@ExceptionHandler(InvalidQueryException.class)
+	public ResponseEntity<String> invalidQuery(InvalidQueryException e) {
+		return ResponseEntity.badRequest().body(e.getMessage());
+	}
+
+	@ExceptionHandler(AggregatesUnavailableException.class)
+	public ResponseEntity<String> unavailable(AggregatesUnavailableException e) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+	}
+
+	@ExceptionHandler(Exception.class)
+	public ResponseEntity<String> generalError(Exception e) {
+		return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+	}
+}
@@ -1,7 +1,5 @@
 package finos.traderx.positionservice.controller;
 
-import java.util.List;
-
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -12,7 +10,6 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import finos.traderx.positionservice.model.Position;
 import finos.traderx.positionservice.service.PositionService;
 
 @CrossOrigin("*")
@@ -26,8 +23,7 @@ public class HealthController {
 
 	@GetMapping("/ready")
 	public ResponseEntity isReady() {
-		List<Position> retVal = this.positionService.getAllPositions();		
-		return ResponseEntity.ok(retVal.size()>0);
+		return ResponseEntity.ok(this.positionService.hasPositions());
 	}
 
 	@GetMapping("/alive")
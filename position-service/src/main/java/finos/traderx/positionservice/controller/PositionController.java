@@ -3,17 +3,35 @@ package finos.traderx.positionservice.controller;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import finos.traderx.positionservice.aggregate.SecurityAggregates;
+import finos.traderx.positionservice.exceptions.AggregatesUnavailableException;
+import finos.traderx.positionservice.exceptions.DatabaseBusyException;
+import finos.traderx.positionservice.exceptions.InvalidQueryException;
 import finos.traderx.positionservice.model.Position;
+import finos.traderx.positionservice.model.PositionQuery;
+import finos.traderx.positionservice.readmodel.Versioned;
 import finos.traderx.positionservice.service.PositionService;
+import finos.traderx.positionservice.stream.AccountStreams;
 
 @CrossOrigin("*")
 @RestController
@@ -22,19 +40,149 @@ public class PositionController {
 
 	@Autowired
 	PositionService positionService;
+
+	@Autowired
+	ObjectMapper objectMapper;
+
+	@Autowired
+	AccountStreams accountStreams;
+
+	@Autowired
+	SecurityAggregates securityAggregates;
+
+	@Value("${page.max-limit:1000}")
+	int maxLimit;
+
+	@Value("${query.max-accounts:1000}")
+	int maxQueryAccounts;
  
 
+	/**
+	 * The account's positions, tagged with their version as a strong ETag so
+	 * unchanged ones are answered with 304 Not Modified. With sinceVersion,
+	 * returns only the positions changed after that version, wrapped with the
+	 * new version, or all of them (full=true) if that version is too old or
+	 * unknown.
+	 * With asOf, an ISO-8601 instant, returns the positions as they were
+	 * then, rebuilt from checkpoints and trades.
+	 */
 	@GetMapping("/{accountId}")
-	public ResponseEntity<List<Position>> getByAccountId(@PathVariable int accountId) {
-		List<Position> retVal = this.positionService.getPositionsByAccountID(accountId);
-		return ResponseEntity.ok(retVal);
+	public ResponseEntity<?> getByAccountId(@PathVariable int accountId,
+			@RequestParam(required = false) Long sinceVersion, @RequestParam(required = false) String asOf) {
+		if (asOf != null) {
+			if (sinceVersion != null) {
+				throw new InvalidQueryException("asOf and sinceVersion cannot be combined");
+			}
+			return ResponseEntity.ok(this.positionService.getPositionsAsOf(accountId, QueryParams.instant("asOf", asOf)));
+		}
+		Versioned<Position> result = sinceVersion == null
+				? this.positionService.getVersionedPositions(accountId)
+				: this.positionService.getPositionChangesSince(accountId, sinceVersion);
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (result.getVersion() >= 0) {
+			response.eTag(Long.toString(result.getVersion()));
+		}
+		return sinceVersion == null ? response.body(result.getItems()) : response.body(result);
+	}
+
+	/**
+	 * The n largest positions by absolute quantity (by=abs), longest (long) or
+	 * shortest (short), firm-wide or of one security, from a ranking kept as
+	 * positions change.
+	 */
+	@GetMapping("/top")
+	public ResponseEntity<List<Position>> getTopPositions(@RequestParam(defaultValue = "10") int n,
+			@RequestParam(defaultValue = "abs") String by, @RequestParam(required = false) String security) {
+		if (n <= 0) {
+			throw new InvalidQueryException("n must be positive");
+		}
+		return ResponseEntity.ok(this.securityAggregates.top(security, Math.min(n, maxLimit), by));
+	}
+
+	/**
+	 * Server-sent events with the account's positions, then each change as it
+	 * happens; resumes from Last-Event-ID on reconnect.
+	 */
+	@GetMapping(value = "/{accountId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter stream(@PathVariable int accountId,
+			@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+		return this.accountStreams.positions(accountId, lastEventId);
+	}
+
+	/**
+	 * All positions, streamed as a JSON array or as NDJSON when the client
+	 * accepts application/x-ndjson. With limit (and optionally after, the
+	 * accountId:security of the last position seen) returns one page in key
+	 * order instead.
+	 */
+	@GetMapping(value = "/", params = { "!after", "!limit" }, produces = { MediaType.APPLICATION_JSON_VALUE, StreamingJson.NDJSON })
+	public ResponseEntity<StreamingResponseBody> getAllPositions(
+			@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+		return StreamingJson.stream(objectMapper, StreamingJson.acceptsNdjson(accept), this.positionService::forEachPosition);
 	}
 
 	@GetMapping("/")
-	public ResponseEntity<List<Position>> getAllPositions() {
-		return ResponseEntity.ok(this.positionService.getAllPositions());
+	public ResponseEntity<?> getPositionsPage(@RequestParam(required = false) String after,
+			@RequestParam(required = false) Integer limit) {
+		if (limit != null && limit <= 0) {
+			return ResponseEntity.badRequest().body("limit must be positive");
+		}
+		int size = limit == null ? maxLimit : Math.min(limit, maxLimit);
+		Integer accountId = null;
+		String security = null;
+		if (after != null) {
+			int separator = after.indexOf(':');
+			try {
+				accountId = Integer.valueOf(after.substring(0, Math.max(separator, 0)));
+			} catch (NumberFormatException x) {
+				return ResponseEntity.badRequest().body("after must be accountId:security");
+			}
+			security = after.substring(separator + 1);
+		}
+		List<Position> page = this.positionService.getPositionsPage(accountId, security, size);
+		Position last = page.isEmpty() ? null : page.get(page.size() - 1);
+		return StreamingJson.page(page, size, last == null ? null : last.getAccountId() + ":" + last.getSecurity());
+	}
+
+	/**
+	 * Positions of many accounts at once, streamed as one entry per account
+	 * that has any, in account order. See {@link PositionGroups} for the
+	 * "rows" and "columns" formats.
+	 */
+	@PostMapping(value = "/query", consumes = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> query(@RequestBody PositionQuery query) {
+		List<Integer> accountIds = query.getAccountIds();
+		if (accountIds == null || accountIds.isEmpty() || accountIds.contains(null)) {
+			throw new InvalidQueryException("accountIds must list at least one account");
+		}
+		if (accountIds.size() > maxQueryAccounts) {
+			throw new InvalidQueryException("at most " + maxQueryAccounts + " accountIds per query");
+		}
+		if (query.getSecurities() != null && query.getSecurities().contains(null)) {
+			throw new InvalidQueryException("securities must not contain null");
+		}
+		String format = query.getFormat() == null ? "rows" : query.getFormat();
+		if (!format.equals("rows") && !format.equals("columns")) {
+			throw new InvalidQueryException("format must be rows or columns");
+		}
+		return PositionGroups.stream(objectMapper, format.equals("columns"),
+				action -> this.positionService.forEachPositionOf(accountIds, query.getSecurities(), action));
 	}
 
+	@ExceptionHandler(InvalidQueryException.class)
+	public ResponseEntity<String> invalidQuery(InvalidQueryException e) {
+		return ResponseEntity.badRequest().body(e.getMessage());
+	}
+
+	@ExceptionHandler(AggregatesUnavailableException.class)
+	public ResponseEntity<String> unavailable(AggregatesUnavailableException e) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+	}
+
+	@ExceptionHandler(DatabaseBusyException.class)
+	public ResponseEntity<String> databaseBusy(DatabaseBusyException e) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(e.getMessage());
+	}
 
 	@ExceptionHandler(Exception.class)
 	public ResponseEntity<String> generalError(Exception e) {
@@ -0,0 +1,97 @@
+package finos.traderx.positionservice.controller;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import finos.traderx.positionservice.model.Position;
+
+/**
+ * Streams positions ordered by account as a JSON array with one entry per
+ * account, holding only the current account's positions at a time.
+ *
+ * As rows: {"accountId":1,"positions":[{...},...]}. As columns, which drops
+ * the repeated field names and account ids of wide results:
+ * {"accountId":1,"security":[...],"quantity":[...],"updated":[...]}, with
+ * updated in epoch milliseconds.
+ */
+final class PositionGroups {
+
+    private PositionGroups() {
+    }
+
+    static ResponseEntity<StreamingResponseBody> stream(ObjectMapper mapper, boolean columnar,
+            Consumer<Consumer<Position>> source) {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+                // a stream cut short by an error must not look complete
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+                generator.writeStartArray();
+                List<Position> group = new ArrayList<>();
+                source.accept(position -> {
+                    if (!group.isEmpty() && !group.get(0).getAccountId().equals(position.getAccountId())) {
+                        write(generator, group, columnar);
+                        group.clear();
+                    }
+                    group.add(position);
+                });
+                if (!group.isEmpty()) {
+                    write(generator, group, columnar);
+                }
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private static void write(JsonGenerator generator, List<Position> group, boolean columnar) {
+        try {
+            generator.writeStartObject();
+            generator.writeNumberField("accountId", group.get(0).getAccountId());
+            if (columnar) {
+                generator.writeArrayFieldStart("security");
+                for (Position position : group) {
+                    generator.writeString(position.getSecurity());
+                }
+                generator.writeEndArray();
+                generator.writeArrayFieldStart("quantity");
+                for (Position position : group) {
+                    if (position.getQuantity() == null) {
+                        generator.writeNull();
+                    } else {
+                        generator.writeNumber(position.getQuantity());
+                    }
+                }
+                generator.writeEndArray();
+                generator.writeArrayFieldStart("updated");
+                for (Position position : group) {
+                    if (position.getUpdated() == null) {
+                        generator.writeNull();
+                    } else {
+                        generator.writeNumber(position.getUpdated().getTime());
+                    }
+                }
+                generator.writeEndArray();
+            } else {
+                generator.writeFieldName("positions");
+                generator.writeStartArray();
+                for (Position position : group) {
+                    generator.writeObject(position);
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+        } catch (IOException x) {
+            throw new UncheckedIOException(x);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package finos.traderx.positionservice.controller;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+import finos.traderx.positionservice.exceptions.InvalidQueryException;
+
+/**
+ * Parsing of request parameters that Spring cannot convert with a useful
+ * error message.
+ */
+final class QueryParams {
+
+    private QueryParams() {
+    }
+
+    /**
+     * @return the ISO-8601 instant, or null if the value is null
+     */
+    static Instant instant(String name, String value) {
+        try {
+            return value == null ? null : Instant.parse(value);
+        } catch (DateTimeParseException x) {
+            throw new InvalidQueryException(name + " must be an ISO-8601 instant such as 2024-01-31T00:00:00Z");
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package finos.traderx.positionservice.controller;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Builds list responses that never hold the full result: either a JSON array
+ * or NDJSON (one object per line) written row by row as the source produces
+ * them, or a single keyset page with a Link header pointing at the next one.
+ */
+final class StreamingJson {
+
+    static final String NDJSON = MediaType.APPLICATION_NDJSON_VALUE;
+
+    private StreamingJson() {
+    }
+
+    static boolean acceptsNdjson(String accept) {
+        if (accept == null) {
+            return false;
+        }
+        for (MediaType type : MediaType.parseMediaTypes(accept)) {
+            if (type.isCompatibleWith(MediaType.APPLICATION_NDJSON) && !type.isWildcardType()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static <T> ResponseEntity<StreamingResponseBody> stream(ObjectMapper mapper, boolean ndjson,
+            Consumer<Consumer<T>> source) {
+        // rows are flushed by the output buffer, not one by one
+        ObjectWriter writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+                // a stream cut short by an error must not look complete
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+                generator.setRootValueSeparator(null);
+                if (!ndjson) {
+                    generator.writeStartArray();
+                }
+                source.accept(row -> {
+                    try {
+                        writer.writeValue(generator, row);
+                        if (ndjson) {
+                            generator.writeRaw('\n');
+                        }
+                    } catch (IOException x) {
+                        throw new UncheckedIOException(x);
+                    }
+                });
+                if (!ndjson) {
+                    generator.writeEndArray();
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    /**
+     * A page of results, with a Link to the next page when this one is full.
+     */
+    static <T> ResponseEntity<List<T>> page(List<T> items, int limit, String nextAfter) {
+        if (items.size() < limit) {
+            return ResponseEntity.ok(items);
+        }
+        String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("after", nextAfter)
+                .replaceQueryParam("limit", limit)
+                .build().encode().toUriString();
+        return ResponseEntity.ok().header("Link", "<" + next + ">; rel=\"next\"").body(items);
+    }
+}
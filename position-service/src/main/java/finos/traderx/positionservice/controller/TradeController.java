@@ -3,17 +3,30 @@ package finos.traderx.positionservice.controller;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import finos.traderx.positionservice.exceptions.DatabaseBusyException;
+import finos.traderx.positionservice.exceptions.InvalidQueryException;
 import finos.traderx.positionservice.model.Trade;
+import finos.traderx.positionservice.readmodel.Versioned;
 import finos.traderx.positionservice.service.TradeService;
+import finos.traderx.positionservice.stream.AccountStreams;
 
 @CrossOrigin("*")
 @RestController
@@ -22,17 +35,99 @@ public class TradeController {
 
 	@Autowired
 	TradeService tradeService;
+
+	@Autowired
+	ObjectMapper objectMapper;
+
+	@Autowired
+	AccountStreams accountStreams;
+
+	@Value("${page.max-limit:1000}")
+	int maxLimit;
  
 
+	/**
+	 * The account's trades, tagged with their version as a strong ETag so
+	 * unchanged ones are answered with 304 Not Modified. With sinceVersion,
+	 * returns only the trades changed after that version, wrapped with the
+	 * new version, or all of them (full=true) if that version is too old or
+	 * unknown.
+	 */
 	@GetMapping("/{accountId}")
-	public ResponseEntity<List<Trade>> getByAccountId(@PathVariable int accountId) {
-		List<Trade> retVal = this.tradeService.getTradesByAccountID(accountId);
-		return ResponseEntity.ok(retVal);
+	public ResponseEntity<?> getByAccountId(@PathVariable int accountId,
+			@RequestParam(required = false) Long sinceVersion) {
+		Versioned<Trade> result = sinceVersion == null
+				? this.tradeService.getVersionedTrades(accountId)
+				: this.tradeService.getTradeChangesSince(accountId, sinceVersion);
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (result.getVersion() >= 0) {
+			response.eTag(Long.toString(result.getVersion()));
+		}
+		return sinceVersion == null ? response.body(result.getItems()) : response.body(result);
+	}
+
+	/**
+	 * Server-sent events with the account's trades, then each change as it
+	 * happens; resumes from Last-Event-ID on reconnect.
+	 */
+	@GetMapping(value = "/{accountId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter stream(@PathVariable int accountId,
+			@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+		return this.accountStreams.trades(accountId, lastEventId);
+	}
+
+	/**
+	 * All trades, streamed as a JSON array or as NDJSON when the client
+	 * accepts application/x-ndjson. With limit (and optionally after, the id
+	 * of the last trade seen) returns one page in id order instead.
+	 */
+	@GetMapping(value = "/", params = { "!after", "!limit" }, produces = { MediaType.APPLICATION_JSON_VALUE, StreamingJson.NDJSON })
+	public ResponseEntity<StreamingResponseBody> getAllTrades(
+			@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+		return StreamingJson.stream(objectMapper, StreamingJson.acceptsNdjson(accept), this.tradeService::forEachTrade);
 	}
 
 	@GetMapping("/")
-	public ResponseEntity<List<Trade>> getAllTrades() {
-		return ResponseEntity.ok(this.tradeService.getAllTrades());
+	public ResponseEntity<?> getTradesPage(@RequestParam(required = false) String after,
+			@RequestParam(required = false) Integer limit) {
+		if (limit != null && limit <= 0) {
+			return ResponseEntity.badRequest().body("limit must be positive");
+		}
+		int size = limit == null ? maxLimit : Math.min(limit, maxLimit);
+		List<Trade> page = this.tradeService.getTradesPage(after, size);
+		return StreamingJson.page(page, size, page.isEmpty() ? null : page.get(page.size() - 1).getId());
+	}
+
+	/**
+	 * Trades filtered by any of account, security, side, state and created
+	 * time (from inclusive, to exclusive, as ISO-8601 instants), newest
+	 * first, a page at a time. The Link header of a full page points at the
+	 * next one.
+	 */
+	@GetMapping("/history")
+	public ResponseEntity<List<Trade>> getTradeHistory(@RequestParam(required = false) Integer accountId,
+			@RequestParam(required = false) String security, @RequestParam(required = false) String side,
+			@RequestParam(required = false) String state, @RequestParam(required = false) String from,
+			@RequestParam(required = false) String to, @RequestParam(required = false) String after,
+			@RequestParam(required = false) Integer limit) {
+		if (limit != null && limit <= 0) {
+			throw new InvalidQueryException("limit must be positive");
+		}
+		int size = limit == null ? maxLimit : Math.min(limit, maxLimit);
+		List<Trade> page = this.tradeService.getTradeHistory(accountId, security, side, state,
+				QueryParams.instant("from", from), QueryParams.instant("to", to), after, size);
+		return StreamingJson.page(page, size,
+				page.isEmpty() ? null : this.tradeService.historyCursor(page.get(page.size() - 1)));
+	}
+
+	@ExceptionHandler(InvalidQueryException.class)
+	public ResponseEntity<String> invalidQuery(InvalidQueryException e) {
+		return ResponseEntity.badRequest().body(e.getMessage());
+	}
+
+	@ExceptionHandler(DatabaseBusyException.class)
+	public ResponseEntity<String> databaseBusy(DatabaseBusyException e) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(e.getMessage());
 	}
 
 	@ExceptionHandler(Exception.class)
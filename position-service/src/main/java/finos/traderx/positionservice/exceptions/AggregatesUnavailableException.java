@@ -0,0 +1,11 @@
+package finos.traderx.positionservice.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class AggregatesUnavailableException extends RuntimeException {
+	public AggregatesUnavailableException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,11 @@
+package finos.traderx.positionservice.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidQueryException extends RuntimeException {
+	public InvalidQueryException(String message) {
+		super(message);
+	}
+}
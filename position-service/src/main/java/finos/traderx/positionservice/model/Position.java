@@ -4,6 +4,8 @@ import java.io.Serial;
 import java.io.Serializable;
 import java.util.Date;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
@@ -11,6 +13,7 @@ import jakarta.persistence.IdClass;
 import jakarta.persistence.Table;
 
 @Entity
+@JsonIgnoreProperties(ignoreUnknown = true)
 @IdClass(PositionID.class)
 @Table(name = "POSITIONS")
 public class Position implements Serializable {
@@ -64,4 +67,15 @@ public class Position implements Serializable {
 	public Date getUpdated(){
 		return this.updated;
 	}
+
+	@Column(name = "VERSION")
+	private Integer version;
+
+	public Integer getVersion() {
+		return this.version;
+	}
+
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
 }
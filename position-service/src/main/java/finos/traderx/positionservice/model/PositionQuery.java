@@ -0,0 +1,40 @@
+package finos.traderx.positionservice.model;
+
+import java.util.List;
+
+/**
+ * Body of a bulk position query: the accounts to read, optionally only some
+ * securities, and the response format, "rows" (default) or "columns".
+ */
+public class PositionQuery {
+
+	private List<Integer> accountIds;
+
+	private List<String> securities;
+
+	private String format;
+
+	public List<Integer> getAccountIds() {
+		return this.accountIds;
+	}
+
+	public void setAccountIds(List<Integer> accountIds) {
+		this.accountIds = accountIds;
+	}
+
+	public List<String> getSecurities() {
+		return this.securities;
+	}
+
+	public void setSecurities(List<String> securities) {
+		this.securities = securities;
+	}
+
+	public String getFormat() {
+		return this.format;
+	}
+
+	public void setFormat(String format) {
+		this.format = format;
+	}
+}
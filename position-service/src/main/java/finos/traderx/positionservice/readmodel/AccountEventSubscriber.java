@@ -0,0 +1,55 @@
+package finos.traderx.positionservice.readmodel;
+
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+import finos.traderx.messaging.Envelope;
+import finos.traderx.messaging.socketio.SocketIOJSONSubscriber;
+import finos.traderx.positionservice.model.Position;
+import finos.traderx.positionservice.model.Trade;
+
+/**
+ * Feeds the read model with one type of account update. Subscribes to every
+ * topic, since the accounts of interest change as they are loaded and
+ * evicted, and keeps only updates published on /accounts/{id}/... topics.
+ */
+public class AccountEventSubscriber<T> extends SocketIOJSONSubscriber<T> {
+
+    private static final Pattern ACCOUNT_TOPIC = Pattern.compile("/accounts/\\d+/(trades|positions)");
+
+    private final AccountReadModel readModel;
+    private final BiConsumer<AccountReadModel, T> handler;
+
+    public AccountEventSubscriber(Class<T> type, AccountReadModel readModel, BiConsumer<AccountReadModel, T> handler) {
+        super(type);
+        this.readModel = readModel;
+        this.handler = handler;
+        setDefaultTopic("/*");
+        readModel.addFeed(this);
+    }
+
+    public static AccountEventSubscriber<Trade> trades(AccountReadModel readModel) {
+        return new AccountEventSubscriber<>(Trade.class, readModel, AccountReadModel::onTrade);
+    }
+
+    public static AccountEventSubscriber<Position> positions(AccountReadModel readModel) {
+        return new AccountEventSubscriber<>(Position.class, readModel, AccountReadModel::onPosition);
+    }
+
+    @Override
+    public void onMessage(Envelope<?> envelope, T message) {
+        if (envelope.getTopic() != null && ACCOUNT_TOPIC.matcher(envelope.getTopic()).matches()) {
+            handler.accept(readModel, message);
+        }
+    }
+
+    @Override
+    protected void onConnected() {
+        readModel.feedConnected();
+    }
+
+    @Override
+    protected void onDisconnected() {
+        readModel.feedDisconnected();
+    }
+}
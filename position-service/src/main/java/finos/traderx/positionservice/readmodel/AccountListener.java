@@ -0,0 +1,18 @@
+package finos.traderx.positionservice.readmodel;
+
+/**
+ * Receives the changes applied to a cached account. Called on the feed
+ * thread while the account is locked, so implementations must only hand
+ * the update off and never block.
+ */
+public interface AccountListener {
+
+    void updated(AccountUpdate update);
+
+    /**
+     * The account was dropped from memory, after a gap or a feed
+     * disconnect; no further updates will follow and the listener is
+     * already removed.
+     */
+    void reset();
+}
@@ -0,0 +1,290 @@
+package finos.traderx.positionservice.readmodel;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import finos.traderx.positionservice.model.Position;
+import finos.traderx.positionservice.model.Trade;
+import finos.traderx.positionservice.repository.PositionRepository;
+import finos.traderx.positionservice.repository.TradeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * In-memory positions and trades per account, fed by the updates the trade
+ * processor publishes on /accounts/{id}/positions and /accounts/{id}/trades.
+ * An account is loaded from the database on its first read and served from
+ * memory afterwards, so reads no longer queue behind processor writes.
+ *
+ * Updates are only trusted while every feed subscription is connected: on a
+ * disconnect all accounts are dropped, and after a reconnect nothing is
+ * cached until the subscriptions have had time to settle. An account whose
+ * updates show a gap is dropped and reloaded on its next read. While the
+ * model cannot answer, reads go to the database.
+ *
+ * Each read carries the version of the account's positions or trades, so
+ * callers can tag responses and ask for only what changed since a version
+ * they hold. Versions are only meaningful within one instance.
+ *
+ * Reports 'readmodel.accounts', 'readmodel.reads' tagged source=memory|database
+ * and 'readmodel.resyncs' tagged reason=gap|disconnect.
+ */
+@Component
+public class AccountReadModel implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountReadModel.class);
+
+    @Autowired
+    private PositionRepository positionRepository;
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${readmodel.max-accounts:10000}")
+    private int maxAccounts;
+
+    @Value("${readmodel.max-trades-per-account:50000}")
+    private int maxTradesPerAccount;
+
+    @Value("${readmodel.subscribe-grace:1s}")
+    private Duration subscribeGrace;
+
+    private final ConcurrentHashMap<Integer, AccountView> accounts = new ConcurrentHashMap<>();
+    // accounts with too many trades to hold, always read from the database
+    private final Set<Integer> oversized = ConcurrentHashMap.newKeySet();
+    private final List<AccountEventSubscriber<?>> feeds = new CopyOnWriteArrayList<>();
+    private final AtomicLong epoch = new AtomicLong();
+    // seeded from the clock so versions handed out before a restart are not reused
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis() * 1000);
+    private volatile boolean feedsConnected;
+    // System.nanoTime() from which updates are trusted after connecting
+    private volatile long trustedFrom;
+
+    private TransactionTemplate readOnly;
+    private Counter memoryReads;
+    private Counter databaseReads;
+    private Counter gapResyncs;
+    private Counter disconnectResyncs;
+
+    /**
+     * The account's positions; read from the database, with version -1, when
+     * the account cannot be held in memory.
+     */
+    public Versioned<Position> positions(int accountId) {
+        return read(accountId, AccountView::positions, positionRepository::findByAccountId);
+    }
+
+    public Versioned<Trade> trades(int accountId) {
+        return read(accountId, AccountView::trades, tradeRepository::findByAccountId);
+    }
+
+    /**
+     * The positions changed after the given version, or all of them if the
+     * changes since then are not known.
+     */
+    public Versioned<Position> positionsSince(int accountId, long version) {
+        return read(accountId, view -> view.positionsSince(version), positionRepository::findByAccountId);
+    }
+
+    public Versioned<Trade> tradesSince(int accountId, long version) {
+        return read(accountId, view -> view.tradesSince(version), tradeRepository::findByAccountId);
+    }
+
+    /**
+     * Registers a listener for the account's position changes, loading the
+     * account if needed.
+     *
+     * @return the positions to start from (see {@link #positionsSince}), or
+     *         null if the account cannot be held in memory right now
+     */
+    public Versioned<Position> subscribePositions(int accountId, long sinceVersion, AccountListener listener) {
+        AccountView view = cached(accountId);
+        return view == null ? null : view.subscribePositions(listener, sinceVersion);
+    }
+
+    public Versioned<Trade> subscribeTrades(int accountId, long sinceVersion, AccountListener listener) {
+        AccountView view = cached(accountId);
+        return view == null ? null : view.subscribeTrades(listener, sinceVersion);
+    }
+
+    public void unsubscribe(int accountId, AccountListener listener) {
+        AccountView view = accounts.get(accountId);
+        if (view != null) {
+            view.unsubscribe(listener);
+        }
+    }
+
+    private AccountView cached(int accountId) {
+        AccountView view = accounts.get(accountId);
+        if (view == null && isTrusted() && !oversized.contains(accountId)) {
+            view = load(accountId);
+        }
+        return view;
+    }
+
+    private <T> Versioned<T> read(int accountId, Function<AccountView, Versioned<T>> fromView,
+            Function<Integer, List<T>> fromDatabase) {
+        AccountView view = cached(accountId);
+        Versioned<T> result = view == null ? null : fromView.apply(view);
+        if (result != null) {
+            memoryReads.increment();
+            return result;
+        }
+        databaseReads.increment();
+        return new Versioned<>(-1, fromDatabase.apply(accountId), true);
+    }
+
+    // Loads the account unless another thread already is, in which case the
+    // caller reads from the database meanwhile.
+    private AccountView load(int accountId) {
+        long current = epoch.get();
+        AccountView view = new AccountView(accountId, sequence, maxTradesPerAccount);
+        if (accounts.putIfAbsent(accountId, view) != null) {
+            return null;
+        }
+        boolean loaded = false;
+        try {
+            loaded = readOnly.execute(status -> {
+                if (tradeRepository.countByAccountId(accountId) > maxTradesPerAccount) {
+                    tooManyTrades(accountId);
+                    return false;
+                }
+                return view.load(positionRepository.findByAccountId(accountId), tradeRepository.findByAccountId(accountId));
+            });
+            if (!loaded && view.isOversized()) {
+                tooManyTrades(accountId);
+            }
+        } finally {
+            if (!loaded || epoch.get() != current) {
+                accounts.remove(accountId, view);
+            }
+        }
+        if (!loaded || epoch.get() != current) {
+            return null;
+        }
+        evictIfFull();
+        return view;
+    }
+
+    private void evictIfFull() {
+        int excess = accounts.size() - maxAccounts;
+        if (excess <= 0) {
+            return;
+        }
+        // drop a tenth at a time so the scan is not repeated on every load
+        accounts.values().stream()
+                .filter(view -> view.isLoaded() && !view.hasListeners())
+                .sorted(Comparator.comparingLong(view -> view.lastRead))
+                .limit(excess + maxAccounts / 10)
+                .forEach(view -> accounts.remove(view.accountId, view));
+    }
+
+    void onTrade(Trade trade) {
+        AccountView view = trade.getAccountId() == null ? null : accounts.get(trade.getAccountId());
+        if (view != null && !view.apply(trade)) {
+            if (view.isOversized()) {
+                if (accounts.remove(view.accountId, view)) {
+                    view.close();
+                    tooManyTrades(view.accountId);
+                }
+            } else {
+                gap(view, "trade " + trade.getId() + " in state " + trade.getState());
+            }
+        }
+    }
+
+    private void tooManyTrades(int accountId) {
+        log.info("Not caching account {}, it has more than {} trades", accountId, maxTradesPerAccount);
+        oversized.add(accountId);
+    }
+
+    void onPosition(Position position) {
+        AccountView view = position.getAccountId() == null ? null : accounts.get(position.getAccountId());
+        if (view != null && !view.apply(position)) {
+            gap(view, "position " + position.getSecurity() + " version " + position.getVersion());
+        }
+    }
+
+    private void gap(AccountView view, String update) {
+        if (accounts.remove(view.accountId, view)) {
+            view.close();
+            gapResyncs.increment();
+            log.warn("Missed an update for account {} before {}, reloading it on next read", view.accountId, update);
+        }
+    }
+
+    void addFeed(AccountEventSubscriber<?> feed) {
+        feeds.add(feed);
+    }
+
+    void feedConnected() {
+        if (!feeds.isEmpty() && feeds.stream().allMatch(AccountEventSubscriber::isConnected)) {
+            trustedFrom = System.nanoTime() + subscribeGrace.toNanos();
+            feedsConnected = true;
+        }
+    }
+
+    void feedDisconnected() {
+        feedsConnected = false;
+        epoch.incrementAndGet();
+        if (!accounts.isEmpty()) {
+            disconnectResyncs.increment();
+            log.warn("Trade feed disconnected, dropping {} cached accounts", accounts.size());
+            for (AccountView view : accounts.values()) {
+                if (accounts.remove(view.accountId, view)) {
+                    view.close();
+                }
+            }
+        }
+    }
+
+    private boolean isTrusted() {
+        return feedsConnected && System.nanoTime() - trustedFrom >= 0;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        memoryReads = reads("memory");
+        databaseReads = reads("database");
+        gapResyncs = resyncs("gap");
+        disconnectResyncs = resyncs("disconnect");
+        Gauge.builder("readmodel.accounts", accounts, ConcurrentHashMap::size)
+                .description("Accounts held in memory").register(meterRegistry);
+    }
+
+    private Counter reads(String source) {
+        return Counter.builder("readmodel.reads")
+                .description("Account reads by where they were answered from")
+                .tag("source", source).register(meterRegistry);
+    }
+
+    private Counter resyncs(String reason) {
+        return Counter.builder("readmodel.resyncs")
+                .description("Times cached accounts were dropped to be reloaded")
+                .tag("reason", reason).register(meterRegistry);
+    }
+}
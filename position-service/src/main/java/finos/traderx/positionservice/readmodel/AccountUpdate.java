@@ -0,0 +1,51 @@
+package finos.traderx.positionservice.readmodel;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import finos.traderx.positionservice.model.Position;
+
+/**
+ * One change to an account's positions or trades, shared by every listener.
+ * The JSON form is computed once, by whichever listener asks first.
+ */
+public class AccountUpdate {
+    private final Object item;
+    private final String key;
+    private final long version;
+    private volatile String json;
+
+    AccountUpdate(Object item, String key, long version) {
+        this.item = item;
+        this.key = key;
+        this.version = version;
+    }
+
+    public Object getItem() {
+        return item;
+    }
+
+    public boolean isPosition() {
+        return item instanceof Position;
+    }
+
+    /**
+     * The security of a position or the id of a trade.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String toJson(ObjectMapper mapper) throws JsonProcessingException {
+        String result = json;
+        if (result == null) {
+            result = mapper.writeValueAsString(item);
+            json = result;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,305 @@
+package finos.traderx.positionservice.readmodel;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import finos.traderx.positionservice.model.Position;
+import finos.traderx.positionservice.model.Trade;
+
+/**
+ * The positions and trades of one account, kept current from published
+ * updates. Until the initial load from the database completes, updates are
+ * buffered and then replayed over it, so nothing published while loading is
+ * lost. Readers get immutable snapshots, rebuilt only after a change.
+ *
+ * Every change takes the next number from a sequence shared by all views,
+ * so versions only grow, also across reloads. Everything loaded from the
+ * database carries the base version of the load; the positions and trades
+ * changed since a later version are found from a change log ordered by
+ * version.
+ *
+ * Listeners get each change as it is applied, starting right after the
+ * snapshot or changes they subscribed with, and are reset when the view is
+ * closed.
+ *
+ * A view holds at most maxTrades trades; one more makes it oversized and
+ * unusable, like a gap does.
+ */
+class AccountView {
+
+    final int accountId;
+    volatile long lastRead = System.nanoTime();
+
+    private final AtomicLong sequence;
+    private final int maxTrades;
+
+    // guarded by this
+    private final Entries<Position> positions = new Entries<>();
+    private final Entries<Trade> trades = new Entries<>();
+    private List<Object> pending = new ArrayList<>();
+    private long baseVersion;
+    private boolean closed;
+    private boolean oversized;
+    private final List<AccountListener> listeners = new CopyOnWriteArrayList<>();
+
+    AccountView(int accountId, AtomicLong sequence, int maxTrades) {
+        this.accountId = accountId;
+        this.sequence = sequence;
+        this.maxTrades = maxTrades;
+    }
+
+    /**
+     * Fills the view from the database and replays the updates received
+     * while it was loading.
+     *
+     * @return false if the updates revealed a gap or made the view
+     *         oversized, and the view is unusable
+     */
+    synchronized boolean load(List<Position> loadedPositions, List<Trade> loadedTrades) {
+        baseVersion = sequence.incrementAndGet();
+        for (Position position : loadedPositions) {
+            positions.put(position.getSecurity(), position, baseVersion);
+        }
+        for (Trade trade : loadedTrades) {
+            trades.put(trade.getId(), trade, baseVersion);
+        }
+        positions.version = baseVersion;
+        trades.version = baseVersion;
+        List<Object> replay = pending;
+        pending = null;
+        for (Object update : replay) {
+            boolean applied = update instanceof Trade trade ? mergeTrade(trade) : mergePosition((Position) update);
+            if (!applied) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    synchronized boolean isLoaded() {
+        return pending == null;
+    }
+
+    synchronized boolean isOversized() {
+        return oversized;
+    }
+
+    /**
+     * @return false if the update shows an earlier one was missed, or would
+     *         take the view over maxTrades trades
+     */
+    synchronized boolean apply(Trade trade) {
+        if (pending != null) {
+            pending.add(trade);
+            return true;
+        }
+        return mergeTrade(trade);
+    }
+
+    synchronized boolean apply(Position position) {
+        if (pending != null) {
+            pending.add(position);
+            return true;
+        }
+        return mergePosition(position);
+    }
+
+    /**
+     * @return the positions ordered by security, or null while loading
+     */
+    synchronized Versioned<Position> positions() {
+        return snapshot(positions);
+    }
+
+    /**
+     * @return the trades ordered by id, or null while loading
+     */
+    synchronized Versioned<Trade> trades() {
+        return snapshot(trades);
+    }
+
+    /**
+     * @return the positions changed after the given version, all of them if
+     *         that version predates the load or is not one this view handed
+     *         out, or null while loading
+     */
+    synchronized Versioned<Position> positionsSince(long version) {
+        return changes(positions, version);
+    }
+
+    synchronized Versioned<Trade> tradesSince(long version) {
+        return changes(trades, version);
+    }
+
+    /**
+     * Registers the listener and returns what it starts from: all positions,
+     * or those changed after sinceVersion if it is not negative.
+     *
+     * @return null if the view is loading or closed
+     */
+    synchronized Versioned<Position> subscribePositions(AccountListener listener, long sinceVersion) {
+        return subscribe(listener, sinceVersion < 0 ? snapshot(positions) : changes(positions, sinceVersion));
+    }
+
+    synchronized Versioned<Trade> subscribeTrades(AccountListener listener, long sinceVersion) {
+        return subscribe(listener, sinceVersion < 0 ? snapshot(trades) : changes(trades, sinceVersion));
+    }
+
+    private <T> Versioned<T> subscribe(AccountListener listener, Versioned<T> initial) {
+        if (initial == null || closed) {
+            return null;
+        }
+        listeners.add(listener);
+        return initial;
+    }
+
+    void unsubscribe(AccountListener listener) {
+        listeners.remove(listener);
+    }
+
+    boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * Marks the view as dropped and resets its listeners.
+     */
+    synchronized void close() {
+        closed = true;
+        for (AccountListener listener : listeners) {
+            listener.reset();
+        }
+        listeners.clear();
+    }
+
+    private void publish(Object item, String key, long version) {
+        if (!listeners.isEmpty()) {
+            AccountUpdate update = new AccountUpdate(item, key, version);
+            for (AccountListener listener : listeners) {
+                listener.updated(update);
+            }
+        }
+    }
+
+    private <T> Versioned<T> snapshot(Entries<T> entries) {
+        if (pending != null) {
+            return null;
+        }
+        lastRead = System.nanoTime();
+        if (entries.snapshot == null) {
+            entries.snapshot = List.copyOf(entries.values.values());
+        }
+        return new Versioned<>(entries.version, entries.snapshot, true);
+    }
+
+    private <T> Versioned<T> changes(Entries<T> entries, long version) {
+        if (pending != null) {
+            return null;
+        }
+        // a version older than the load, or newer than any this view handed
+        // out (e.g. from another instance), tells us nothing about the client
+        if (version < baseVersion || version > entries.version) {
+            return snapshot(entries);
+        }
+        lastRead = System.nanoTime();
+        List<T> changed = new ArrayList<>();
+        for (String key : entries.changes.tailMap(version, false).values()) {
+            changed.add(entries.values.get(key));
+        }
+        return new Versioned<>(entries.version, changed, false);
+    }
+
+    // Updates carry the whole position and its Version, which every change
+    // moves on by one. An older one arriving late is ignored; one that skips
+    // a version, or a position we do not hold that was changed before, means
+    // an update was missed or overtaken, and the account is reloaded.
+    private boolean mergePosition(Position position) {
+        Position current = positions.values.get(position.getSecurity());
+        int incoming = version(position);
+        int held = current == null ? 0 : version(current);
+        if (incoming <= held) {
+            return true;
+        }
+        if (incoming != held + 1) {
+            return false;
+        }
+        long version = sequence.incrementAndGet();
+        positions.put(position.getSecurity(), position, version);
+        publish(position, position.getSecurity(), version);
+        return true;
+    }
+
+    // Every trade is published when booked as New. Seeing any later state of
+    // a trade we do not hold means an update went missing.
+    private boolean mergeTrade(Trade trade) {
+        Trade current = trades.values.get(trade.getId());
+        if (current == null) {
+            if (!"New".equals(trade.getState())) {
+                return false;
+            }
+        } else {
+            long incoming = time(trade.getUpdated());
+            long held = time(current.getUpdated());
+            if (incoming < held || (incoming == held && rank(trade.getState()) <= rank(current.getState()))) {
+                return true;
+            }
+        }
+        if (current == null && trades.values.size() >= maxTrades) {
+            oversized = true;
+            return false;
+        }
+        long version = sequence.incrementAndGet();
+        trades.put(trade.getId(), trade, version);
+        publish(trade, trade.getId(), version);
+        return true;
+    }
+
+    private static int version(Position position) {
+        return position.getVersion() == null ? 0 : position.getVersion();
+    }
+
+    private static long time(Date date) {
+        return date == null ? Long.MIN_VALUE : date.getTime();
+    }
+
+    private static int rank(String state) {
+        if (state == null) {
+            return -1;
+        }
+        return switch (state) {
+            case "New" -> 0;
+            case "Processing" -> 1;
+            case "Settled" -> 2;
+            case "Cancelled" -> 3;
+            default -> -1;
+        };
+    }
+
+    /**
+     * Entries by key with the version each was last changed at.
+     */
+    private static final class Entries<T> {
+        final TreeMap<String, T> values = new TreeMap<>();
+        final Map<String, Long> versions = new HashMap<>();
+        final TreeMap<Long, String> changes = new TreeMap<>();
+        long version;
+        List<T> snapshot;
+
+        void put(String key, T value, long changeVersion) {
+            values.put(key, value);
+            Long previous = versions.put(key, changeVersion);
+            if (previous != null) {
+                changes.remove(previous);
+            }
+            changes.put(changeVersion, key);
+            version = changeVersion;
+            snapshot = null;
+        }
+    }
+}
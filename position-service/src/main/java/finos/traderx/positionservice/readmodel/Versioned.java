@@ -0,0 +1,33 @@
+package finos.traderx.positionservice.readmodel;
+
+import java.util.List;
+
+/**
+ * Positions or trades of an account as of a version. When read as changes
+ * since an earlier version, full tells whether the items are everything
+ * (the earlier version was too old to compute the difference) or only what
+ * changed.
+ */
+public class Versioned<T> {
+    private final long version;
+    private final List<T> items;
+    private final boolean full;
+
+    Versioned(long version, List<T> items, boolean full) {
+        this.version = version;
+        this.items = items;
+        this.full = full;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public boolean isFull() {
+        return full;
+    }
+}
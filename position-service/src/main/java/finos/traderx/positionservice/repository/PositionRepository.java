@@ -3,13 +3,22 @@ package finos.traderx.positionservice.repository;
 
 import java.util.List;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import finos.traderx.positionservice.model.Position;
 import finos.traderx.positionservice.model.PositionID;
 
+@Transactional(readOnly = true)
 public interface PositionRepository extends JpaRepository<Position,PositionID> {
 
     List<Position> findByAccountId(Integer id);
 
+    @Query("select p from Position p where p.accountId > :accountId or (p.accountId = :accountId and p.security > :security)"
+            + " order by p.accountId, p.security")
+    List<Position> findPageAfter(@Param("accountId") Integer accountId, @Param("security") String security, Limit limit);
+
 }
@@ -2,12 +2,19 @@ package finos.traderx.positionservice.repository;
 
 import java.util.List;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
 
 import finos.traderx.positionservice.model.Trade;
 
+@Transactional(readOnly = true)
 public interface TradeRepository extends JpaRepository<Trade, Integer> {
     
     List<Trade> findByAccountId(Integer id);
+
+    long countByAccountId(Integer id);
+
+    List<Trade> findByIdGreaterThanOrderById(String after, Limit limit);
     
 }
@@ -0,0 +1,73 @@
+package finos.traderx.positionservice.service;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Reads large results as a series of keyset pages, each in its own short
+ * read-only transaction that takes a read permit from the bulkhead. Rows are
+ * handed to the caller between pages, with no connection held, so a client
+ * reading a streamed response slowly cannot keep a connection or permit, and
+ * only one page is held in memory however large the result.
+ *
+ * Pages are read at different times, so a row changed during a scan may be
+ * seen in either state; keyset order still returns each key once.
+ */
+@Component
+class PagedQueries implements InitializingBean {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${stream.page-size:500}")
+    private int pageSize;
+
+    private TransactionTemplate readOnly;
+
+    @Override
+    public void afterPropertiesSet() {
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    int pageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Runs the query in a read-only transaction.
+     */
+    <T> List<T> list(String sql, RowMapper<T> mapper, Object... args) {
+        return readOnly.execute(status -> jdbcTemplate.query(sql, mapper, args));
+    }
+
+    /**
+     * Hands every row of successive pages to the action. nextPage reads up
+     * to pageSize() rows after the given row, or from the start for null; a
+     * shorter page ends the scan.
+     */
+    <T> void forEach(Function<T, List<T>> nextPage, Consumer<? super T> action) {
+        T last = null;
+        List<T> page;
+        do {
+            page = nextPage.apply(last);
+            page.forEach(action);
+            if (!page.isEmpty()) {
+                last = page.get(page.size() - 1);
+            }
+        } while (page.size() >= pageSize);
+    }
+}
@@ -1,29 +1,123 @@
 package finos.traderx.positionservice.service;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
+import java.util.TreeSet;
+import java.util.function.Consumer;
 
+import finos.traderx.positionservice.checkpoint.PositionHistory;
 import finos.traderx.positionservice.model.*;
+import finos.traderx.positionservice.readmodel.AccountReadModel;
+import finos.traderx.positionservice.readmodel.Versioned;
 import finos.traderx.positionservice.repository.*;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
 
 @Service
 public class PositionService {
 
+	private static final RowMapper<Position> POSITION_ROWS = (rs, row) -> {
+		Position position = new Position();
+		position.setAccountId(rs.getObject(1, Integer.class));
+		position.setSecurity(rs.getString(2));
+		position.setQuantity(rs.getObject(3, Integer.class));
+		position.setUpdated(rs.getTimestamp(4));
+		position.setVersion(rs.getObject(5, Integer.class));
+		return position;
+	};
+
 	@Autowired
 	PositionRepository positionRepository;
 
-	public List<Position> getAllPositions() {
-		List<Position> positions = new ArrayList<Position>();
-		this.positionRepository.findAll().forEach(account -> positions.add(account));
-		return positions;
+	@Autowired
+	PagedQueries pagedQueries;
+
+	@Autowired
+	AccountReadModel accountReadModel;
+
+	@Autowired
+	PositionHistory positionHistory;
+
+	@Value("${query.batch-size:500}")
+	int batchSize;
+
+	/**
+	 * Streams every position, in key order, a page at a time.
+	 */
+	public void forEachPosition(Consumer<Position> action) {
+		pagedQueries.forEach(last -> last == null
+				? positionRepository.findPageAfter(Integer.MIN_VALUE, "", Limit.of(pagedQueries.pageSize()))
+				: positionRepository.findPageAfter(last.getAccountId(), last.getSecurity(), Limit.of(pagedQueries.pageSize())),
+				action);
+	}
+
+	/**
+	 * Streams the positions of the given accounts, optionally only in the
+	 * given securities, ordered by account and security. Accounts are read
+	 * in IN-list batches of query.batch-size, each a page at a time.
+	 */
+	public void forEachPositionOf(Collection<Integer> accountIds, Collection<String> securities,
+			Consumer<Position> action) {
+		List<Integer> accounts = new ArrayList<>(new TreeSet<>(accountIds));
+		List<String> filter = securities == null || securities.isEmpty() ? List.of() : new ArrayList<>(new TreeSet<>(securities));
+		for (int from = 0; from < accounts.size(); from += batchSize) {
+			List<Integer> batch = accounts.subList(from, Math.min(from + batchSize, accounts.size()));
+			StringBuilder sql = new StringBuilder("SELECT ACCOUNTID, SECURITY, QUANTITY, UPDATED, VERSION FROM POSITIONS WHERE ACCOUNTID IN (")
+					.append(String.join(",", Collections.nCopies(batch.size(), "?"))).append(')');
+			List<Object> args = new ArrayList<>(batch);
+			if (!filter.isEmpty()) {
+				sql.append(" AND SECURITY IN (").append(String.join(",", Collections.nCopies(filter.size(), "?"))).append(')');
+				args.addAll(filter);
+			}
+			String first = sql + " ORDER BY ACCOUNTID, SECURITY FETCH FIRST ? ROWS ONLY";
+			String next = sql + " AND (ACCOUNTID > ? OR ACCOUNTID = ? AND SECURITY > ?) ORDER BY ACCOUNTID, SECURITY FETCH FIRST ? ROWS ONLY";
+			pagedQueries.forEach(last -> {
+				List<Object> pageArgs = new ArrayList<>(args);
+				if (last != null) {
+					pageArgs.addAll(List.of(last.getAccountId(), last.getAccountId(), last.getSecurity()));
+				}
+				pageArgs.add(pagedQueries.pageSize());
+				return pagedQueries.list(last == null ? first : next, POSITION_ROWS, pageArgs.toArray());
+			}, action);
+		}
+	}
+
+	/**
+	 * Up to limit positions in key order, starting after the given key (or
+	 * from the first one if accountId is null).
+	 */
+	public List<Position> getPositionsPage(Integer accountId, String security, int limit) {
+		if (accountId == null) {
+			return this.positionRepository.findPageAfter(Integer.MIN_VALUE, "", Limit.of(limit));
+		}
+		return this.positionRepository.findPageAfter(accountId, security, Limit.of(limit));
+	}
+
+	public boolean hasPositions() {
+		return this.positionRepository.count() > 0;
 	}
 
 	public List<Position> getPositionsByAccountID(int id) {
-		return this.positionRepository.findByAccountId(id);
+		return this.accountReadModel.positions(id).getItems();
+	}
+
+	public Versioned<Position> getVersionedPositions(int id) {
+		return this.accountReadModel.positions(id);
+	}
+
+	public Versioned<Position> getPositionChangesSince(int id, long version) {
+		return this.accountReadModel.positionsSince(id, version);
+	}
+
+	public List<Position> getPositionsAsOf(int id, Instant asOf) {
+		return this.positionHistory.positionsAsOf(id, asOf);
 	}
 
 }
@@ -1,29 +1,155 @@
 package finos.traderx.positionservice.service;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
-import java.util.Optional;
+import java.util.function.Consumer;
+
+import finos.traderx.positionservice.exceptions.InvalidQueryException;
 
 import finos.traderx.positionservice.model.*;
+import finos.traderx.positionservice.readmodel.AccountReadModel;
+import finos.traderx.positionservice.readmodel.Versioned;
 import finos.traderx.positionservice.repository.*;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
 
 @Service
 public class TradeService {
 
+	private static final RowMapper<Trade> TRADE_ROWS = (rs, row) -> {
+		Trade trade = new Trade();
+		trade.setId(rs.getString(1));
+		trade.setAccountId(rs.getObject(2, Integer.class));
+		trade.setSecurity(rs.getString(3));
+		trade.setSide(rs.getString(4));
+		trade.setState(rs.getString(5));
+		trade.setQuantity(rs.getObject(6, Integer.class));
+		trade.setUpdated(rs.getTimestamp(7));
+		trade.setCreated(rs.getTimestamp(8));
+		return trade;
+	};
+
 	@Autowired
 	TradeRepository tradeRepository;
 
-	public List<Trade> getAllTrades() {
-		List<Trade> trades = new ArrayList<Trade>();
-		this.tradeRepository.findAll().forEach(trade -> trades.add(trade));
-		return trades;
+	@Autowired
+	PagedQueries pagedQueries;
+
+	@Autowired
+	AccountReadModel accountReadModel;
+
+	/**
+	 * Streams every trade, in id order, a page at a time.
+	 */
+	public void forEachTrade(Consumer<Trade> action) {
+		pagedQueries.forEach(last -> tradeRepository.findByIdGreaterThanOrderById(last == null ? "" : last.getId(),
+				Limit.of(pagedQueries.pageSize())), action);
+	}
+
+	/**
+	 * Up to limit trades in id order, starting after the given id (or from
+	 * the first one if after is null).
+	 */
+	public List<Trade> getTradesPage(String after, int limit) {
+		return this.tradeRepository.findByIdGreaterThanOrderById(after == null ? "" : after, Limit.of(limit));
+	}
+
+	/**
+	 * Up to limit trades matching the given filters (each optional; from is
+	 * inclusive and to exclusive), newest first, continuing after the trade
+	 * the cursor was taken from. Each filter combination reads one of the
+	 * Trades_*_Created indexes in order and stops after the page. The index
+	 * is named, since H2 otherwise prefers the AccountID index of the
+	 * foreign key, and its leading column also leads the ORDER BY, since H2
+	 * only reads an index in order when the sort starts with its first
+	 * column.
+	 */
+	public List<Trade> getTradeHistory(Integer accountId, String security, String side, String state,
+			Instant from, Instant to, String after, int limit) {
+		String index;
+		String order;
+		if (accountId != null) {
+			index = "TRADES_ACCOUNT_CREATED";
+			order = "ACCOUNTID, CREATED DESC, ID DESC";
+		} else if (security != null) {
+			index = "TRADES_SECURITY_CREATED";
+			order = "SECURITY, CREATED DESC, ID DESC";
+		} else {
+			index = "TRADES_CREATED";
+			order = "CREATED DESC, ID DESC";
+		}
+		StringBuilder sql = new StringBuilder("SELECT ID, ACCOUNTID, SECURITY, SIDE, STATE, QUANTITY, UPDATED, CREATED FROM TRADES USE INDEX (")
+				.append(index).append(") WHERE 1 = 1");
+		List<Object> args = new ArrayList<>();
+		condition(sql, args, " AND ACCOUNTID = ?", accountId);
+		condition(sql, args, " AND SECURITY = ?", security);
+		condition(sql, args, " AND SIDE = ?", side);
+		condition(sql, args, " AND STATE = ?", state);
+		condition(sql, args, " AND CREATED >= ?", from == null ? null : Timestamp.from(from));
+		condition(sql, args, " AND CREATED < ?", to == null ? null : Timestamp.from(to));
+		if (after != null) {
+			String[] cursor = decodeCursor(after);
+			Timestamp created = Timestamp.from(Instant.parse(cursor[0]));
+			// the first bound lets the index seek, the rest breaks ties on id
+			sql.append(" AND CREATED <= ? AND (CREATED < ? OR ID < ?)");
+			args.add(created);
+			args.add(created);
+			args.add(cursor[1]);
+		}
+		sql.append(" ORDER BY ").append(order).append(" FETCH FIRST ? ROWS ONLY");
+		args.add(limit);
+		return pagedQueries.list(sql.toString(), TRADE_ROWS, args.toArray());
+	}
+
+	/**
+	 * The history cursor positioned at the given trade: an opaque token of
+	 * its created time and id.
+	 */
+	public String historyCursor(Trade trade) {
+		Instant created = trade.getCreated() instanceof Timestamp timestamp
+				? timestamp.toInstant() : trade.getCreated().toInstant();
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString((created + "," + trade.getId()).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String[] decodeCursor(String cursor) {
+		try {
+			String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",", 2);
+			if (parts.length == 2) {
+				Instant.parse(parts[0]);
+				return parts;
+			}
+		} catch (IllegalArgumentException | DateTimeParseException x) {
+			// reported below
+		}
+		throw new InvalidQueryException("after is not a cursor returned by this endpoint");
+	}
+
+	private static void condition(StringBuilder sql, List<Object> args, String clause, Object value) {
+		if (value != null) {
+			sql.append(clause);
+			args.add(value);
+		}
 	}
 
 	public List<Trade> getTradesByAccountID(int id) {
-		return this.tradeRepository.findByAccountId(id);
+		return this.accountReadModel.trades(id).getItems();
+	}
+
+	public Versioned<Trade> getVersionedTrades(int id) {
+		return this.accountReadModel.trades(id);
+	}
+
+	public Versioned<Trade> getTradeChangesSince(int id, long version) {
+		return this.accountReadModel.tradesSince(id, version);
 	}
 
 }
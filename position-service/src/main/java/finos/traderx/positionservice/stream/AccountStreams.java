@@ -0,0 +1,151 @@
+package finos.traderx.positionservice.stream;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import finos.traderx.positionservice.readmodel.AccountReadModel;
+import finos.traderx.positionservice.readmodel.Versioned;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Server-sent event streams of an account's positions or trades, for clients
+ * that cannot use the trade feed. A stream opens with a 'snapshot' event
+ * (the same body as a read with sinceVersion) and continues with one
+ * 'position' or 'trade' event per change, each with its version as the event
+ * id, so a reconnecting EventSource resumes from Last-Event-ID.
+ *
+ * Changes come from the read model, which hands each one to every stream of
+ * the account and serializes it once. Each stream has its own bounded
+ * buffer and writer, so a slow client never holds up the feed or the other
+ * streams: changes to a key it has not been sent yet replace the queued one,
+ * and a client that falls further behind is disconnected to reconnect.
+ *
+ * When the account cannot be held in memory, the stream sends a snapshot
+ * from the database and closes, asking the client to retry shortly.
+ *
+ * Reports 'sse.clients', 'sse.events' tagged outcome=sent|conflated and
+ * 'sse.disconnects' tagged reason=slow|reset|closed.
+ */
+@Component
+public class AccountStreams implements InitializingBean {
+
+    @Autowired
+    private AccountReadModel readModel;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${sse.buffer-size:256}")
+    private int bufferSize;
+
+    @Value("${sse.heartbeat:15s}")
+    private Duration heartbeat;
+
+    @Value("${sse.timeout:30m}")
+    private Duration timeout;
+
+    @Value("${sse.retry:5s}")
+    private Duration retry;
+
+    private final Set<SseClient> clients = ConcurrentHashMap.newKeySet();
+
+    Counter sent;
+    Counter conflated;
+    Counter slowDisconnects;
+    Counter resetDisconnects;
+    Counter closedDisconnects;
+
+    public SseEmitter positions(int accountId, String lastEventId) {
+        SseClient client = new SseClient(this, accountId, true, bufferSize, heartbeat, timeout.toMillis());
+        return open(client, c -> readModel.subscribePositions(accountId, since(lastEventId), c),
+                () -> readModel.positions(accountId));
+    }
+
+    public SseEmitter trades(int accountId, String lastEventId) {
+        SseClient client = new SseClient(this, accountId, false, bufferSize, heartbeat, timeout.toMillis());
+        return open(client, c -> readModel.subscribeTrades(accountId, since(lastEventId), c),
+                () -> readModel.trades(accountId));
+    }
+
+    private SseEmitter open(SseClient client, Function<SseClient, Versioned<?>> subscribe,
+            Supplier<Versioned<?>> fallback) {
+        clients.add(client);
+        Versioned<?> initial = subscribe.apply(client);
+        if (initial == null) {
+            clients.remove(client);
+            // not streamable right now: answer like a poll and have the client retry
+            SseEmitter emitter = new SseEmitter(timeout.toMillis());
+            try {
+                emitter.send(SseEmitter.event().name("snapshot").reconnectTime(retry.toMillis())
+                        .data(fallback.get()));
+                emitter.complete();
+            } catch (IOException x) {
+                emitter.completeWithError(x);
+            }
+            return emitter;
+        }
+        client.start(initial, retry.toMillis());
+        return client.emitter();
+    }
+
+    // Last-Event-ID is a version we handed out; anything else starts afresh
+    private static long since(String lastEventId) {
+        if (lastEventId != null) {
+            try {
+                return Long.parseLong(lastEventId.trim());
+            } catch (NumberFormatException x) {
+                // fall through
+            }
+        }
+        return -1;
+    }
+
+    void closed(SseClient client) {
+        clients.remove(client);
+        readModel.unsubscribe(client.accountId, client);
+    }
+
+    ObjectMapper objectMapper() {
+        return objectMapper;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Gauge.builder("sse.clients", clients, Set::size)
+                .description("Open account event streams").register(meterRegistry);
+        sent = events("sent");
+        conflated = events("conflated");
+        slowDisconnects = disconnects("slow");
+        resetDisconnects = disconnects("reset");
+        closedDisconnects = disconnects("closed");
+    }
+
+    private Counter events(String outcome) {
+        return Counter.builder("sse.events")
+                .description("Account changes sent to streams, or replaced by a later one before sending")
+                .tag("outcome", outcome).register(meterRegistry);
+    }
+
+    private Counter disconnects(String reason) {
+        return Counter.builder("sse.disconnects")
+                .description("Account event streams ended, by cause")
+                .tag("reason", reason).register(meterRegistry);
+    }
+}
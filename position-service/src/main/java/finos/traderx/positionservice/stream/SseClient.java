@@ -0,0 +1,183 @@
+package finos.traderx.positionservice.stream;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import finos.traderx.positionservice.readmodel.AccountListener;
+import finos.traderx.positionservice.readmodel.AccountUpdate;
+import finos.traderx.positionservice.readmodel.Versioned;
+import io.micrometer.core.instrument.Counter;
+
+/**
+ * One open stream. Changes are queued by key, so a later change to a
+ * position or trade still waiting to be sent replaces it (moving it to the
+ * back, which keeps events in version order). The queue is drained by the
+ * stream's own virtual thread, the only one writing to the response.
+ */
+class SseClient implements AccountListener {
+
+    private static final String SNAPSHOT = "";
+
+    final int accountId;
+    private final AccountStreams streams;
+    private final boolean positions;
+    private final int capacity;
+    private final long heartbeatNanos;
+    private final SseEmitter emitter;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    // guarded by lock
+    private final LinkedHashMap<String, SseEmitter.SseEventBuilder> queue = new LinkedHashMap<>();
+    private boolean closing;
+
+    SseClient(AccountStreams streams, int accountId, boolean positions, int capacity, Duration heartbeat, long timeout) {
+        this.streams = streams;
+        this.accountId = accountId;
+        this.positions = positions;
+        this.capacity = capacity;
+        this.heartbeatNanos = heartbeat.toNanos();
+        this.emitter = new SseEmitter(timeout);
+        emitter.onCompletion(() -> close(false, streams.closedDisconnects));
+        emitter.onTimeout(() -> close(false, streams.closedDisconnects));
+        emitter.onError(x -> close(true, streams.closedDisconnects));
+    }
+
+    SseEmitter emitter() {
+        return emitter;
+    }
+
+    /**
+     * Starts writing, with the snapshot the stream subscribed with ahead of
+     * any change queued since.
+     */
+    void start(Versioned<?> initial, long retry) {
+        SseEmitter.SseEventBuilder snapshot = SseEmitter.event().name("snapshot").reconnectTime(retry);
+        if (initial.getVersion() >= 0) {
+            snapshot.id(Long.toString(initial.getVersion()));
+        }
+        snapshot.data(initial);
+        lock.lock();
+        try {
+            LinkedHashMap<String, SseEmitter.SseEventBuilder> queued = new LinkedHashMap<>(queue);
+            queue.clear();
+            queue.put(SNAPSHOT, snapshot);
+            queue.putAll(queued);
+        } finally {
+            lock.unlock();
+        }
+        Thread.ofVirtual().name("sse-" + accountId).start(this::drain);
+    }
+
+    @Override
+    public void updated(AccountUpdate update) {
+        if (update.isPosition() != positions) {
+            return;
+        }
+        String json;
+        try {
+            json = update.toJson(streams.objectMapper());
+        } catch (IOException x) {
+            close(true, streams.closedDisconnects);
+            return;
+        }
+        enqueue(update.getKey(), SseEmitter.event()
+                .id(Long.toString(update.getVersion()))
+                .name(positions ? "position" : "trade")
+                .data(json, MediaType.APPLICATION_JSON));
+    }
+
+    @Override
+    public void reset() {
+        // what is queued is still valid; send it, then let the client reconnect
+        close(false, streams.resetDisconnects);
+    }
+
+    private void enqueue(String key, SseEmitter.SseEventBuilder event) {
+        lock.lock();
+        try {
+            if (closing) {
+                return;
+            }
+            if (queue.remove(key) != null) {
+                streams.conflated.increment();
+            } else if (queue.size() >= capacity) {
+                closeLocked(true, streams.slowDisconnects);
+                return;
+            }
+            queue.put(key, event);
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void close(boolean discardQueued, Counter reason) {
+        lock.lock();
+        try {
+            closeLocked(discardQueued, reason);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Never completes the emitter here: that waits for a write in progress,
+    // and this may be the feed thread. The writer completes it instead.
+    private void closeLocked(boolean discardQueued, Counter reason) {
+        if (closing) {
+            return;
+        }
+        closing = true;
+        if (discardQueued) {
+            queue.clear();
+        }
+        reason.increment();
+        changed.signal();
+        streams.closed(this);
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                List<SseEmitter.SseEventBuilder> batch;
+                lock.lock();
+                try {
+                    long wait = heartbeatNanos;
+                    while (queue.isEmpty() && !closing && wait > 0) {
+                        wait = changed.awaitNanos(wait);
+                    }
+                    if (queue.isEmpty() && closing) {
+                        break;
+                    }
+                    batch = new ArrayList<>(queue.values());
+                    queue.clear();
+                } finally {
+                    lock.unlock();
+                }
+                if (batch.isEmpty()) {
+                    emitter.send(SseEmitter.event().comment("keep-alive"));
+                }
+                for (SseEmitter.SseEventBuilder event : batch) {
+                    emitter.send(event);
+                    streams.sent.increment();
+                }
+            }
+            emitter.complete();
+        } catch (IOException | IllegalStateException x) {
+            // the client went away or the response already completed
+            close(true, streams.closedDisconnects);
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+            close(true, streams.closedDisconnects);
+            emitter.complete();
+        }
+    }
+}
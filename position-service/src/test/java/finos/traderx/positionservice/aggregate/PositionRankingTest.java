@@ -0,0 +1,73 @@
+package finos.traderx.positionservice.aggregate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import finos.traderx.positionservice.aggregate.PositionRanking.By;
+import finos.traderx.positionservice.aggregate.PositionRanking.Entry;
+
+/**
+ * Rankings list the largest positions from either end, firm-wide and per
+ * security, follow positions as they move, and drop them when flat.
+ */
+class PositionRankingTest {
+
+    private static final int IBM = 1;
+    private static final int MSFT = 2;
+
+    @Test
+    void ranksByAbsoluteLongAndShortQuantity() {
+        PositionRanking ranking = new PositionRanking();
+        ranking.update(10, IBM, 0, 100, 0, 1);
+        ranking.update(11, IBM, 0, -300, 0, 1);
+        ranking.update(12, MSFT, 0, 200, 0, 1);
+        ranking.update(13, MSFT, 0, -50, 0, 1);
+
+        assertEquals(List.of(-300L, 200L, 100L, -50L), quantities(ranking.top(0, 10, By.ABS)));
+        assertEquals(List.of(200L, 100L), quantities(ranking.top(0, 10, By.LONG)));
+        assertEquals(List.of(-300L, -50L), quantities(ranking.top(0, 10, By.SHORT)));
+        assertEquals(List.of(-300L, 200L), quantities(ranking.top(0, 2, By.ABS)));
+    }
+
+    @Test
+    void ranksWithinOneSecurity() {
+        PositionRanking ranking = new PositionRanking();
+        ranking.update(10, IBM, 0, 100, 0, 1);
+        ranking.update(11, MSFT, 0, 500, 0, 1);
+        ranking.update(12, IBM, 0, -150, 0, 1);
+
+        assertEquals(List.of(-150L, 100L), quantities(ranking.top(IBM, 10, By.ABS)));
+        assertTrue(ranking.top(99, 10, By.ABS).isEmpty());
+    }
+
+    @Test
+    void movedPositionIsListedOnceWithItsLatestVersion() {
+        PositionRanking ranking = new PositionRanking();
+        ranking.update(10, IBM, 0, 100, 1_000, 1);
+        ranking.update(10, IBM, 100, -400, 2_000, 2);
+
+        List<Entry> top = ranking.top(0, 10, By.ABS);
+        assertEquals(1, top.size());
+        assertEquals(-400, top.get(0).quantity);
+        assertEquals(2, top.get(0).version);
+        assertEquals(2_000, top.get(0).updated);
+    }
+
+    @Test
+    void flatPositionIsDropped() {
+        PositionRanking ranking = new PositionRanking();
+        ranking.update(10, IBM, 0, 100, 0, 1);
+        ranking.update(10, IBM, 100, 0, 0, 2);
+
+        assertTrue(ranking.top(0, 10, By.ABS).isEmpty());
+        assertTrue(ranking.top(IBM, 10, By.ABS).isEmpty());
+    }
+
+    private static List<Long> quantities(List<Entry> entries) {
+        return entries.stream().map(entry -> entry.quantity).toList();
+    }
+}
@@ -0,0 +1,82 @@
+package finos.traderx.positionservice.analytics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import finos.traderx.positionservice.analytics.TradeAnalytics.GroupBy;
+
+/**
+ * Scans total the rows matching the filter per group, across segments, and
+ * a trade seen again only moves its row to a later state.
+ */
+class TradeColumnsTest {
+
+    private static final int NEW = TradeColumns.state("New");
+    private static final int SETTLED = TradeColumns.state("Settled");
+    private static final int PROCESSING = TradeColumns.state("Processing");
+
+    @Test
+    void totalsMatchingRows() {
+        TradeColumns columns = new TradeColumns();
+        columns.put("T1", 10, 1, 100, 1_000, 1_000, TradeColumns.BUY, NEW);
+        columns.put("T2", 10, 2, 40, 2_000, 2_000, TradeColumns.SELL, NEW);
+        columns.put("T3", 11, 1, 7, 3_000, 3_000, TradeColumns.BUY, NEW);
+
+        Totals all = columns.scan(new TradeFilter(), GroupBy.NONE);
+        assertEquals(3, all.trades[0]);
+        assertEquals(147, all.quantity[0]);
+        assertEquals(67, all.net[0]);
+
+        TradeFilter filter = new TradeFilter();
+        filter.anyAccount = false;
+        filter.accountId = 10;
+        filter.from = 1_500;
+        Totals filtered = columns.scan(filter, GroupBy.NONE);
+        assertEquals(1, filtered.trades[0]);
+        assertEquals(-40, filtered.net[0]);
+
+        Totals bySecurity = columns.scan(new TradeFilter(), GroupBy.SECURITY);
+        assertEquals(107, bySecurity.quantity[1]);
+        assertEquals(40, bySecurity.quantity[2]);
+    }
+
+    @Test
+    void laterVersionMovesTheRowsState() {
+        TradeColumns columns = new TradeColumns();
+        columns.put("T1", 10, 1, 100, 1_000, 1_000, TradeColumns.BUY, NEW);
+        columns.put("T1", 10, 1, 100, 1_000, 2_000, TradeColumns.BUY, SETTLED);
+        columns.put("T1", 10, 1, 100, 1_000, 1_500, TradeColumns.BUY, PROCESSING);
+        columns.put("T1", 10, 1, 100, 1_000, 2_000, TradeColumns.BUY, PROCESSING);
+
+        assertEquals(1, columns.rows());
+        Totals byState = columns.scan(new TradeFilter(), GroupBy.STATE);
+        assertEquals(0, byState.trades[NEW]);
+        assertEquals(0, byState.trades[PROCESSING]);
+        assertEquals(1, byState.trades[SETTLED]);
+    }
+
+    @Test
+    void scanMergesGroupsAcrossSegments() {
+        TradeColumns columns = new TradeColumns();
+        int rows = TradeColumns.SEGMENT_SIZE * 2 + 123;
+        for (int i = 0; i < rows; i++) {
+            columns.put("T" + i, 1 + i % 3, 1, 1, i, i, i % 2, NEW);
+        }
+
+        Totals byAccount = columns.scan(new TradeFilter(), GroupBy.ACCOUNT);
+        assertEquals(3, byAccount.groups);
+        long total = 0;
+        for (int i = 0; i < byAccount.groups; i++) {
+            int account = byAccount.accounts[i];
+            long expected = rows / 3 + (account - 1 < rows % 3 ? 1 : 0);
+            assertEquals(expected, byAccount.trades[i]);
+            total += byAccount.trades[i];
+        }
+        assertEquals(rows, total);
+
+        Totals bySide = columns.scan(new TradeFilter(), GroupBy.SIDE);
+        assertEquals(rows - rows / 2, bySide.trades[TradeColumns.BUY]);
+        assertEquals(rows / 2, bySide.trades[TradeColumns.SELL]);
+    }
+}
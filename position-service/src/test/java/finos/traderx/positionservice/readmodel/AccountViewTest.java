@@ -0,0 +1,196 @@
+package finos.traderx.positionservice.readmodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import finos.traderx.positionservice.model.Position;
+import finos.traderx.positionservice.model.Trade;
+
+/**
+ * Merges into one account's view: positions apply in Version order, trades
+ * only move forward in state, anything that implies a missed update reports
+ * a gap, and readers with an unknown version get the full snapshot.
+ */
+class AccountViewTest {
+
+    private static final int ACCOUNT = 22214;
+
+    private final AtomicLong sequence = new AtomicLong(1000);
+
+    @Test
+    void positionsApplyInVersionOrderAndIgnoreStaleOnes() {
+        AccountView view = loaded(List.of(position("IBM", 100, 2)), List.of());
+
+        assertTrue(view.apply(position("IBM", 150, 3)));
+        assertTrue(view.apply(position("IBM", 90, 2)));
+        assertTrue(view.apply(position("IBM", 90, 3)));
+
+        assertEquals(150, quantity(view, "IBM"));
+    }
+
+    @Test
+    void skippedPositionVersionIsAGap() {
+        AccountView view = loaded(List.of(position("IBM", 100, 2)), List.of());
+
+        assertFalse(view.apply(position("IBM", 150, 4)));
+    }
+
+    @Test
+    void unknownPositionMustBeItsFirstVersion() {
+        AccountView view = loaded(List.of(), List.of());
+
+        assertTrue(view.apply(position("IBM", 10, 1)));
+        assertFalse(view.apply(position("MSFT", 10, 2)));
+    }
+
+    @Test
+    void updatesReceivedWhileLoadingAreReplayedOverTheLoad() {
+        AccountView view = new AccountView(ACCOUNT, sequence, 100);
+        assertNull(view.positions());
+        assertTrue(view.apply(position("IBM", 100, 2)));
+        assertTrue(view.apply(position("IBM", 150, 3)));
+        assertTrue(view.apply(trade("T1", "New", 1)));
+
+        assertTrue(view.load(List.of(position("IBM", 100, 2)), List.of()));
+
+        assertEquals(150, quantity(view, "IBM"));
+        assertEquals(List.of("T1"), view.trades().getItems().stream().map(Trade::getId).toList());
+    }
+
+    @Test
+    void replayThatSkipsAVersionFailsTheLoad() {
+        AccountView view = new AccountView(ACCOUNT, sequence, 100);
+        view.apply(position("IBM", 150, 4));
+
+        assertFalse(view.load(List.of(position("IBM", 100, 2)), List.of()));
+    }
+
+    @Test
+    void tradeStatesOnlyMoveForward() {
+        AccountView view = loaded(List.of(), List.of(trade("T1", "New", 1)));
+
+        assertTrue(view.apply(trade("T1", "Settled", 3)));
+        assertTrue(view.apply(trade("T1", "Processing", 2)));
+        assertTrue(view.apply(trade("T1", "Processing", 3)));
+
+        assertEquals("Settled", view.trades().getItems().get(0).getState());
+    }
+
+    @Test
+    void laterStateOfAnUnknownTradeIsAGap() {
+        AccountView view = loaded(List.of(), List.of());
+
+        assertFalse(view.apply(trade("T1", "Processing", 2)));
+    }
+
+    @Test
+    void changesSinceAVersionListOnlyWhatChanged() {
+        AccountView view = loaded(List.of(position("IBM", 100, 1), position("MSFT", 5, 1)), List.of());
+        long loaded = view.positions().getVersion();
+
+        view.apply(position("MSFT", 7, 2));
+        Versioned<Position> changes = view.positionsSince(loaded);
+
+        assertFalse(changes.isFull());
+        assertEquals(List.of("MSFT"), changes.getItems().stream().map(Position::getSecurity).toList());
+        assertTrue(changes.getVersion() > loaded);
+        assertTrue(view.positionsSince(changes.getVersion()).getItems().isEmpty());
+    }
+
+    @Test
+    void unknownVersionsGetTheFullSnapshot() {
+        AccountView view = loaded(List.of(position("IBM", 100, 1)), List.of());
+        long loaded = view.positions().getVersion();
+
+        Versioned<Position> tooOld = view.positionsSince(loaded - 1);
+        Versioned<Position> tooNew = view.positionsSince(loaded + 1000);
+
+        assertTrue(tooOld.isFull());
+        assertEquals(1, tooOld.getItems().size());
+        assertTrue(tooNew.isFull());
+        assertEquals(1, tooNew.getItems().size());
+    }
+
+    @Test
+    void newTradeOverTheLimitMakesTheViewOversized() {
+        AccountView view = new AccountView(ACCOUNT, sequence, 2);
+        view.load(List.of(), List.of(trade("T1", "New", 1), trade("T2", "New", 1)));
+
+        assertTrue(view.apply(trade("T1", "Settled", 2)));
+        assertFalse(view.isOversized());
+        assertFalse(view.apply(trade("T3", "New", 2)));
+        assertTrue(view.isOversized());
+    }
+
+    @Test
+    void listenersGetEachChangeAndAreResetOnClose() {
+        AccountView view = loaded(List.of(position("IBM", 100, 1)), List.of());
+        List<AccountUpdate> updates = new ArrayList<>();
+        boolean[] reset = new boolean[1];
+        AccountListener listener = new AccountListener() {
+            @Override
+            public void updated(AccountUpdate update) {
+                updates.add(update);
+            }
+
+            @Override
+            public void reset() {
+                reset[0] = true;
+            }
+        };
+        long since = view.subscribePositions(listener, -1).getVersion();
+
+        view.apply(position("IBM", 120, 2));
+        view.apply(position("IBM", 110, 1));
+        view.close();
+
+        assertEquals(1, updates.size());
+        assertEquals("IBM", updates.get(0).getKey());
+        assertTrue(updates.get(0).getVersion() > since);
+        assertTrue(reset[0]);
+        assertFalse(view.hasListeners());
+    }
+
+    private AccountView loaded(List<Position> positions, List<Trade> trades) {
+        AccountView view = new AccountView(ACCOUNT, sequence, 100);
+        assertTrue(view.load(positions, trades));
+        return view;
+    }
+
+    private static int quantity(AccountView view, String security) {
+        return view.positions().getItems().stream().filter(p -> p.getSecurity().equals(security)).findFirst()
+                .orElseThrow().getQuantity();
+    }
+
+    private static Position position(String security, int quantity, int version) {
+        Position position = new Position();
+        position.setAccountId(ACCOUNT);
+        position.setSecurity(security);
+        position.setQuantity(quantity);
+        position.setUpdated(new Date(1_000_000));
+        position.setVersion(version);
+        return position;
+    }
+
+    private static Trade trade(String id, String state, long updated) {
+        Trade trade = new Trade();
+        trade.setId(id);
+        trade.setAccountId(ACCOUNT);
+        trade.setSecurity("IBM");
+        trade.setSide("Buy");
+        trade.setState(state);
+        trade.setQuantity(10);
+        trade.setUpdated(new Date(updated));
+        trade.setCreated(new Date(0));
+        return trade;
+    }
+}
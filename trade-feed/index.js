@@ -21,6 +21,7 @@ const log = winston.createLogger({
 const SUBSCRIBE = "subscribe";
 const UNSUBSCRIBE = "unusbscribe";
 const PUBLISH = "publish";
+const PUBLISH_BATCH = "publishBatch";
 
 app.get('/', (req, res) => {
   res.sendFile(__dirname + '/index.html');
@@ -65,6 +66,10 @@ io.on('connection', (socket) => {
   socket.on(PUBLISH, (data) => {
     broadcast(socket.id, data);
   });
+  // one frame carrying messages for several topics, fanned out per topic
+  socket.on(PUBLISH_BATCH, (messages) => {
+    messages.forEach((data) => broadcast(socket.id, data));
+  });
 });
 
 
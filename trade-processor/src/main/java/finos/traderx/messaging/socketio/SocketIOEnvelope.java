@@ -5,6 +5,12 @@ import java.util.Date;
 import finos.traderx.messaging.Envelope;
 
 public class SocketIOEnvelope<T> implements Envelope<T> {
+    /**
+     * Appended to the payload type of an envelope whose payload is a list of
+     * messages for the same topic, e.g. 'TradeOrder[]'.
+     */
+    public static final String BATCH_TYPE_SUFFIX = "[]";
+
     private String topic;
     private T payload;
     private Date date = new Date();
@@ -18,6 +24,12 @@ public class SocketIOEnvelope<T> implements Envelope<T> {
         this.type = payload.getClass().getSimpleName();
     }
 
+    public SocketIOEnvelope(String topic, T payload, String type) {
+        this.payload = payload;
+        this.topic = topic;
+        this.type = type;
+    }
+
     public void setType(String type) {
         this.type = type;
     }
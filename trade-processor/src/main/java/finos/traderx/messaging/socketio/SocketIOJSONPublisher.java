@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import io.socket.client.IO;
 import io.socket.client.Socket;
 import io.socket.emitter.Emitter;
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
@@ -12,6 +13,8 @@ import finos.traderx.messaging.Publisher;
 import finos.traderx.messaging.PubSubException;
 
 import java.net.URI;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Simple socketIO Publisher, which uses 3 commands - 'subscribe',
@@ -62,8 +65,7 @@ public abstract class SocketIOJSONPublisher<T> implements Publisher<T>, Initiali
         }
         try {
             SocketIOEnvelope<T> envelope = new SocketIOEnvelope<T>(topic, message);
-            String msgString = objectMapper.writerFor(SocketIOEnvelope.class).writeValueAsString(envelope);
-            JSONObject obj = new JSONObject(msgString);
+            JSONObject obj = toJSON(envelope);
             log.debug("PUBLISH->" + obj);
             socket.emit("publish", obj);
         } catch (Exception x) {
@@ -71,6 +73,63 @@ public abstract class SocketIOJSONPublisher<T> implements Publisher<T>, Initiali
         }
     }
 
+    /**
+     * Publishes all messages for a topic as a single envelope whose payload is
+     * the list of messages.
+     */
+    @Override
+    public void publishBatch(String topic, List<T> messages) throws PubSubException {
+        if (messages.isEmpty()) {
+            return;
+        }
+        if (!isConnected()) {
+            throw new PubSubException("Cannot send batch of %d on topic %s - not connected".formatted(messages.size(), topic));
+        }
+        try {
+            JSONObject obj = toJSON(batchEnvelope(topic, messages));
+            log.debug("PUBLISH->" + obj);
+            socket.emit("publish", obj);
+        } catch (Exception x) {
+            throw new PubSubException("Cannot send batch of %d on topic %s".formatted(messages.size(), topic), x);
+        }
+    }
+
+    /**
+     * Publishes one batch envelope per topic, all carried in a single
+     * 'publishBatch' frame which the feed dispatches topic by topic.
+     */
+    @Override
+    public void publishBatch(Map<String, List<T>> messagesByTopic) throws PubSubException {
+        if (!isConnected()) {
+            throw new PubSubException("Cannot send batch on topics %s - not connected".formatted(messagesByTopic.keySet()));
+        }
+        try {
+            JSONArray frames = new JSONArray();
+            for (Map.Entry<String, List<T>> entry : messagesByTopic.entrySet()) {
+                if (!entry.getValue().isEmpty()) {
+                    frames.put(toJSON(batchEnvelope(entry.getKey(), entry.getValue())));
+                }
+            }
+            if (frames.isEmpty()) {
+                return;
+            }
+            log.debug("PUBLISH BATCH->" + frames);
+            socket.emit("publishBatch", frames);
+        } catch (Exception x) {
+            throw new PubSubException("Cannot send batch on topics %s".formatted(messagesByTopic.keySet()), x);
+        }
+    }
+
+    private SocketIOEnvelope<List<T>> batchEnvelope(String topic, List<T> messages) {
+        String type = messages.get(0).getClass().getSimpleName() + SocketIOEnvelope.BATCH_TYPE_SUFFIX;
+        return new SocketIOEnvelope<List<T>>(topic, messages, type);
+    }
+
+    private JSONObject toJSON(SocketIOEnvelope<?> envelope) throws Exception {
+        String msgString = objectMapper.writerFor(SocketIOEnvelope.class).writeValueAsString(envelope);
+        return new JSONObject(msgString);
+    }
+
     @Override
     public void disconnect() throws PubSubException {
         if (socket != null && isConnected())
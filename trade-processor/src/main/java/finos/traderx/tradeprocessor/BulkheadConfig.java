@@ -0,0 +1,68 @@
+package finos.traderx.tradeprocessor;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import finos.traderx.tradeprocessor.bulkhead.BulkheadDataSource;
+import finos.traderx.tradeprocessor.bulkhead.BulkheadTransactionManager;
+import finos.traderx.tradeprocessor.bulkhead.DatabaseBulkhead;
+import finos.traderx.tradeprocessor.bulkhead.VirtualThreadPinningMonitor;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+@ConditionalOnProperty(name = "db.bulkhead.enabled", havingValue = "true", matchIfMissing = true)
+public class BulkheadConfig {
+
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    // Lane sizes of 0 default to the connection pool size
+    @Bean
+    public DatabaseBulkhead databaseBulkhead(DataSource dataSource, MeterRegistry registry,
+            @Value("${db.bulkhead.read.permits:0}") int readPermits,
+            @Value("${db.bulkhead.write.permits:0}") int writePermits,
+            @Value("${db.bulkhead.max-wait:5s}") Duration maxWait) {
+        int poolSize = dataSource instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : DEFAULT_POOL_SIZE;
+        return new DatabaseBulkhead(readPermits > 0 ? readPermits : poolSize,
+                writePermits > 0 ? writePermits : poolSize, maxWait, registry);
+    }
+
+    // Replaces the auto-configured JdbcTemplate, whose calls outside a
+    // transaction would otherwise bypass the bulkhead
+    @Bean
+    public JdbcTemplate jdbcTemplate(DataSource dataSource, DatabaseBulkhead bulkhead) {
+        return new JdbcTemplate(new BulkheadDataSource(dataSource, bulkhead));
+    }
+
+    @Bean
+    public static BeanPostProcessor bulkheadTransactionManagerPostProcessor(ObjectProvider<DatabaseBulkhead> bulkhead) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof PlatformTransactionManager manager && !(bean instanceof BulkheadTransactionManager)) {
+                    return new BulkheadTransactionManager(manager, bulkhead.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "db.bulkhead.pinning.enabled", havingValue = "true", matchIfMissing = true)
+    public VirtualThreadPinningMonitor virtualThreadPinningMonitor(MeterRegistry registry,
+            @Value("${db.bulkhead.pinning.threshold:20ms}") Duration threshold,
+            @Value("${db.bulkhead.pinning.log-interval:10s}") Duration logInterval) {
+        return new VirtualThreadPinningMonitor(threshold, logInterval, registry);
+    }
+}
@@ -0,0 +1,42 @@
+package finos.traderx.tradeprocessor;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import finos.traderx.tradeprocessor.hotkeys.HotKeyTracker;
+import finos.traderx.tradeprocessor.hotkeys.OrderHotKeys;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+public class HotKeysConfig {
+
+    @Value("${hotkeys.window:1m}")
+    private Duration window;
+
+    @Value("${hotkeys.slices:6}")
+    private int slices;
+
+    @Value("${hotkeys.capacity:64}")
+    private int capacity;
+
+    @Value("${hotkeys.sketch.depth:4}")
+    private int sketchDepth;
+
+    @Value("${hotkeys.sketch.width:2048}")
+    private int sketchWidth;
+
+    @Value("${hotkeys.metric-ranks:5}")
+    private int metricRanks;
+
+    @Bean
+    public OrderHotKeys orderHotKeys(MeterRegistry registry) {
+        return new OrderHotKeys(tracker("order-accounts", registry), tracker("order-securities", registry));
+    }
+
+    private HotKeyTracker tracker(String name, MeterRegistry registry) {
+        return new HotKeyTracker(name, window, slices, capacity, sketchDepth, sketchWidth, metricRanks, registry);
+    }
+}
@@ -10,6 +10,7 @@ import finos.traderx.messaging.socketio.SocketIOJSONPublisher;
 import finos.traderx.tradeprocessor.model.Position;
 import finos.traderx.tradeprocessor.model.Trade;
 import finos.traderx.tradeprocessor.model.TradeOrder;
+import finos.traderx.tradeprocessor.model.TradeRejection;
 
 @Configuration
 public class PubSubConfig {
@@ -30,11 +31,19 @@ public class PubSubConfig {
         return publisher;
     }
 
+    @Bean 
+    public Publisher<TradeRejection> rejectionPublisher() {
+        SocketIOJSONPublisher<TradeRejection> publisher = new SocketIOJSONPublisher<TradeRejection>(){};
+        publisher.setSocketAddress(tradeFeedAddress);
+        return publisher;
+    }
+
     
     @Bean 
     public Subscriber<TradeOrder> tradeFeedHandler() {
         TradeFeedHandler handler=new TradeFeedHandler();
-        handler.setDefaultTopic("/trades");
+        // Partition topics are subscribed by PartitionLeaseManager
+        handler.setDefaultTopic(null);
         handler.setSocketAddress(tradeFeedAddress);
         return handler;
     }
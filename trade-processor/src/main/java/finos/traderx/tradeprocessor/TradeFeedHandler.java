@@ -5,6 +5,7 @@ import org.springframework.core.ParameterizedTypeReference;
 
 import finos.traderx.messaging.Envelope;
 import finos.traderx.messaging.socketio.SocketIOJSONSubscriber;
+import finos.traderx.tradeprocessor.exceptions.TradeRejectedException;
 import finos.traderx.tradeprocessor.model.TradeOrder;
 import finos.traderx.tradeprocessor.service.TradeService;
 
@@ -21,6 +22,8 @@ public class TradeFeedHandler extends SocketIOJSONSubscriber<TradeOrder> {
     public void onMessage(Envelope<?> envelope, TradeOrder order) {
         try{
             tradeService.processTrade(order);
+        } catch (TradeRejectedException x){
+            log.info("Trade order {} rejected: {}",order.getId(),x.getMessage());
         } catch (Exception x){
             log.error("Error processing trade order {} in envelope {}",order,envelope);
             log.error("Error handling incoming trade order:",x);
@@ -0,0 +1,74 @@
+package finos.traderx.tradeprocessor;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.StringUtils;
+
+import finos.traderx.tradeprocessor.id.NodeIdLease;
+import finos.traderx.tradeprocessor.id.TimeOrderedTradeIdGenerator;
+import finos.traderx.tradeprocessor.id.TradeIdGenerator;
+import finos.traderx.tradeprocessor.id.UuidTradeIdGenerator;
+
+@Configuration
+public class TradeIdConfig implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(TradeIdConfig.class);
+
+    @Value("${trade.id.generator:time-ordered}")
+    private String generator;
+
+    // Negative means: lease one from the database
+    @Value("${trade.id.node-id:-1}")
+    private int nodeId;
+
+    @Value("${trade.id.node-lease-ttl:60s}")
+    private Duration nodeLeaseTtl;
+
+    @Value("${trade.processor.instance-id:}")
+    private String instanceId;
+
+    private volatile NodeIdLease lease;
+
+    @Bean
+    @DependsOn("entityManagerFactory")
+    public TradeIdGenerator tradeIdGenerator(JdbcTemplate jdbcTemplate) throws UnknownHostException {
+        if ("uuid".equals(generator)) {
+            log.info("Generating random UUID trade ids");
+            return new UuidTradeIdGenerator();
+        }
+        if (nodeId >= 0) {
+            log.info("Generating time ordered trade ids as configured node {}", nodeId);
+            return new TimeOrderedTradeIdGenerator(nodeId);
+        }
+        String owner = StringUtils.hasText(instanceId) ? instanceId
+                : InetAddress.getLocalHost().getHostName() + "-" + ProcessHandle.current().pid();
+        lease = new NodeIdLease(jdbcTemplate, owner, nodeLeaseTtl);
+        int node = lease.acquire();
+        log.info("Generating time ordered trade ids as leased node {}", node);
+        return new TimeOrderedTradeIdGenerator(node, lease);
+    }
+
+    @Scheduled(fixedDelayString = "${trade.id.node-lease-renew-interval:20s}", initialDelayString = "${trade.id.node-lease-renew-interval:20s}")
+    public void renewNodeIdLease() {
+        if (lease != null) {
+            lease.renew();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (lease != null) {
+            lease.release();
+        }
+    }
+}
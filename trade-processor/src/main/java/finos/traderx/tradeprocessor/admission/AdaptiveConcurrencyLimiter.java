@@ -0,0 +1,148 @@
+package finos.traderx.tradeprocessor.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Caps the number of requests in flight at a limit that follows the measured
+ * latency, in the style of a gradient limiter. A slow moving average of
+ * response time serves as the no-load baseline and a fast one as the current
+ * latency. While the current latency stays within a tolerance of the baseline
+ * the limit grows by about its square root per sample; once requests start
+ * queueing it shrinks in proportion to the slowdown. Failed requests cut the
+ * limit multiplicatively. Requests over the limit are refused immediately
+ * instead of queueing for threads or connections.
+ *
+ * Reports 'admission.limit' and 'admission.inflight' gauges, an
+ * 'admission.requests' counter tagged outcome=accepted|rejected|dropped and
+ * an 'admission.latency' timer, all tagged with the limiter's name.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double SHORT_WINDOW = 10;
+    private static final double LONG_WINDOW = 600;
+    private static final double RTT_TOLERANCE = 1.5;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    // nanoseconds, guarded by this
+    private double shortRtt;
+    private double longRtt;
+
+    private final Counter accepted;
+    private final Counter rejected;
+    private final Counter dropped;
+    private final Timer latency;
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit, double smoothing,
+            MeterRegistry registry) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        Gauge.builder("admission.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current concurrency limit").tag("name", name).register(registry);
+        Gauge.builder("admission.inflight", inFlight, AtomicInteger::get)
+                .description("Requests currently admitted").tag("name", name).register(registry);
+        this.accepted = requests("accepted", name, registry);
+        this.rejected = requests("rejected", name, registry);
+        this.dropped = requests("dropped", name, registry);
+        this.latency = Timer.builder("admission.latency")
+                .description("Latency of admitted requests").tag("name", name).register(registry);
+    }
+
+    private static Counter requests(String outcome, String name, MeterRegistry registry) {
+        return Counter.builder("admission.requests")
+                .description("Requests by admission outcome; dropped ones were admitted and failed")
+                .tag("name", name).tag("outcome", outcome).register(registry);
+    }
+
+    /**
+     * @return a permit to release when the request completes, or null if the
+     *         limit is reached
+     */
+    public Permit tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= (int) limit) {
+                rejected.increment();
+                return null;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        accepted.increment();
+        return new Permit(current + 1);
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * How long until a rejected caller is likely to be admitted: the current
+     * latency, times how many times over the limit the in-flight requests are.
+     */
+    public synchronized long retryAfterMillis() {
+        double rttMillis = shortRtt / 1_000_000;
+        double turns = Math.max(1.0, (double) inFlight.get() / Math.max(1.0, limit));
+        return Math.max(1, Math.round(rttMillis * turns));
+    }
+
+    private synchronized void onSample(long rtt, int inFlightAtStart, boolean failed) {
+        if (failed) {
+            limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+            return;
+        }
+        shortRtt = shortRtt == 0 ? rtt : shortRtt + (rtt - shortRtt) * 2 / (SHORT_WINDOW + 1);
+        longRtt = longRtt == 0 ? rtt : longRtt + (rtt - longRtt) * 2 / (LONG_WINDOW + 1);
+        if (longRtt / shortRtt > 2) {
+            // Latency dropped for good, e.g. after a warm-up; let the baseline follow
+            longRtt *= 0.95;
+        }
+        if (inFlightAtStart < limit / 2) {
+            // Not using the limit, so latency says nothing about raising it
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRtt / shortRtt));
+        double next = limit * gradient + Math.sqrt(limit);
+        next = limit * (1 - smoothing) + next * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+
+    public class Permit {
+        private final long start = System.nanoTime();
+        private final int inFlightAtStart;
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * @param failed whether the request failed in a way that suggests
+         *               overload, e.g. a server error or timeout
+         */
+        public void release(boolean failed) {
+            long rtt = System.nanoTime() - start;
+            inFlight.decrementAndGet();
+            latency.record(rtt, TimeUnit.NANOSECONDS);
+            if (failed) {
+                dropped.increment();
+            }
+            onSample(rtt, inFlightAtStart, failed);
+        }
+    }
+}
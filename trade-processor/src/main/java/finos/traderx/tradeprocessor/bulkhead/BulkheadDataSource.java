@@ -0,0 +1,81 @@
+package finos.traderx.tradeprocessor.bulkhead;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.core.InfrastructureProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import finos.traderx.tradeprocessor.bulkhead.DatabaseBulkhead.Lane;
+
+/**
+ * Takes a bulkhead permit for every connection opened outside a transaction,
+ * e.g. by JdbcTemplate calls from scheduled jobs, and gives it back when the
+ * connection is closed, which must happen on the same thread. Such work uses
+ * the write lane, so queries filling the read lane cannot starve it.
+ *
+ * Inside a transaction JdbcTemplate uses the transaction's connection, which
+ * is bound to the target data source; being an {@link InfrastructureProxy}
+ * makes this wrapper resolve to the same binding.
+ */
+public class BulkheadDataSource extends DelegatingDataSource implements InfrastructureProxy {
+
+    private final DatabaseBulkhead bulkhead;
+
+    public BulkheadDataSource(DataSource target, DatabaseBulkhead bulkhead) {
+        super(target);
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        bulkhead.acquire(Lane.WRITE);
+        try {
+            return releasing(super.getConnection());
+        } catch (SQLException | RuntimeException | Error x) {
+            bulkhead.release();
+            throw x;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        bulkhead.acquire(Lane.WRITE);
+        try {
+            return releasing(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException | Error x) {
+            bulkhead.release();
+            throw x;
+        }
+    }
+
+    @Override
+    public Object getWrappedObject() {
+        return obtainTargetDataSource();
+    }
+
+    private Connection releasing(Connection connection) {
+        boolean[] closed = { false };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close") && !closed[0]) {
+                        closed[0] = true;
+                        try {
+                            connection.close();
+                        } finally {
+                            bulkhead.release();
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException x) {
+                        throw x.getTargetException();
+                    }
+                });
+    }
+}
@@ -0,0 +1,114 @@
+package finos.traderx.tradeprocessor.collections;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing (linear probing) map from long to long, without boxing.
+ * Entries are never removed; a value of zero is as good as absent for the
+ * quantities kept in these maps.
+ *
+ * Not thread safe; callers synchronize.
+ */
+public class LongLongMap {
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, long value);
+    }
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+
+    public LongLongMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2) - 1) << 1;
+        allocate(capacity);
+    }
+
+    public long get(long key, long missing) {
+        int i = find(key);
+        return keys[i] == key ? values[i] : missing;
+    }
+
+    public void put(long key, long value) {
+        int i = find(key);
+        if (keys[i] != key) {
+            keys[i] = key;
+            if (++size > (mask + 1) / 4 * 3) {
+                values[i] = value;
+                resize();
+                return;
+            }
+        }
+        values[i] = value;
+    }
+
+    /**
+     * @return the new value
+     */
+    public long add(long key, long delta) {
+        long value = get(key, 0) + delta;
+        put(key, value);
+        return value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Adds every value of the other map to this one.
+     */
+    public void addAll(LongLongMap other) {
+        other.forEach(this::add);
+    }
+
+    private int find(long key) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Reserved key");
+        }
+        int i = slot(key);
+        while (keys[i] != EMPTY && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate((mask + 1) << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int j = find(oldKeys[i]);
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+                size++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new long[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private int slot(long key) {
+        key *= 0x9e3779b97f4a7c15L;
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+}
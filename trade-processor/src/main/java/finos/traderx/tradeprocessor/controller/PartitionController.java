@@ -0,0 +1,32 @@
+package finos.traderx.tradeprocessor.controller;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import finos.traderx.tradeprocessor.partition.PartitionLeaseManager;
+
+@CrossOrigin("*")
+@RestController
+@RequestMapping("/partitions")
+public class PartitionController {
+
+	@Autowired
+	PartitionLeaseManager partitionLeaseManager;
+
+	@GetMapping
+	public ResponseEntity<Map<String, Object>> partitions() {
+		return ResponseEntity.ok(Map.of(
+				"instanceId", partitionLeaseManager.getInstanceId(),
+				"partitions", partitionLeaseManager.getPartitions(),
+				"assigned", partitionLeaseManager.getAssigned(),
+				"owned", partitionLeaseManager.getOwned()));
+	}
+
+}
@@ -0,0 +1,38 @@
+package finos.traderx.tradeprocessor.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import finos.traderx.tradeprocessor.exceptions.ResourceNotFoundException;
+import finos.traderx.tradeprocessor.reconcile.PositionReconciler;
+import finos.traderx.tradeprocessor.reconcile.ReconciliationReport;
+
+@CrossOrigin("*")
+@RestController
+@RequestMapping("/reconciliation")
+public class ReconciliationController {
+
+	@Autowired
+	PositionReconciler positionReconciler;
+
+	@PostMapping
+	public ResponseEntity<ReconciliationReport> reconcile(@RequestParam(defaultValue = "false") boolean repair) {
+		return ResponseEntity.ok(positionReconciler.reconcile(repair));
+	}
+
+	@GetMapping
+	public ResponseEntity<ReconciliationReport> lastReport() {
+		ReconciliationReport report = positionReconciler.getLastReport();
+		if (report == null) {
+			throw new ResourceNotFoundException("No reconciliation has run yet");
+		}
+		return ResponseEntity.ok(report);
+	}
+
+}
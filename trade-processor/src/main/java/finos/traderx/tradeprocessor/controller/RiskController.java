@@ -0,0 +1,28 @@
+package finos.traderx.tradeprocessor.controller;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import finos.traderx.tradeprocessor.risk.RiskEngine;
+import finos.traderx.tradeprocessor.risk.RiskLimitsSummary;
+
+@CrossOrigin("*")
+@RestController
+@RequestMapping("/risk")
+public class RiskController {
+
+	@Autowired
+	RiskEngine riskEngine;
+
+	@PostMapping("/limits/reload")
+	public ResponseEntity<RiskLimitsSummary> reloadLimits() throws IOException {
+		return ResponseEntity.ok(riskEngine.reloadLimits());
+	}
+
+}
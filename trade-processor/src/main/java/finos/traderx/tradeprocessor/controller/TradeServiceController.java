@@ -1,15 +1,23 @@
 package finos.traderx.tradeprocessor.controller;
 
+import java.util.List;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import finos.traderx.tradeprocessor.exceptions.DatabaseBusyException;
+import finos.traderx.tradeprocessor.model.TradeBatchBookingResult;
 import finos.traderx.tradeprocessor.model.TradeBookingResult;
 import finos.traderx.tradeprocessor.model.TradeOrder;
 import finos.traderx.tradeprocessor.service.TradeService;
@@ -31,6 +39,27 @@ public class TradeServiceController {
 		return ResponseEntity.ok(result);
 	}
 
+	@PostMapping("/orders")
+	public ResponseEntity<TradeBatchBookingResult> processOrders(@RequestBody List<TradeOrder> orders) {
+		TradeBatchBookingResult result= tradeService.processTrades(orders);
+		return ResponseEntity.ok(result);
+	}
+
+	@PostMapping("/trades/{tradeId}/cancel")
+	public ResponseEntity<TradeBookingResult> cancelTrade(@PathVariable String tradeId) {
+		return ResponseEntity.ok(tradeService.cancelTrade(tradeId));
+	}
+
+	@PostMapping("/accounts/{accountId}/cancel")
+	public ResponseEntity<TradeBatchBookingResult> cancelTrades(@PathVariable Integer accountId) {
+		return ResponseEntity.ok(tradeService.cancelTrades(accountId));
+	}
+
+	@ExceptionHandler(DatabaseBusyException.class)
+	public ResponseEntity<String> databaseBusy(DatabaseBusyException e) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(e.getMessage());
+	}
+
 	
 
 }
@@ -0,0 +1,130 @@
+package finos.traderx.tradeprocessor.dedup;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing (linear probing) set of non-zero 64-bit fingerprints, each
+ * with an expiry time. Expired slots are reused on insert and dropped on
+ * resize. When the table is at its maximum capacity and still full of live
+ * entries, the oldest entries are evicted early so memory stays bounded at
+ * 16 bytes per slot.
+ *
+ * Not thread safe; callers synchronize.
+ */
+class FingerprintIndex {
+
+    private static final int MIN_CAPACITY = 1024;
+
+    private final int maxCapacity;
+
+    private long[] fingerprints;
+    private long[] expiries;
+    private int mask;
+    // slots that are not empty, including expired and removed ones
+    private int used;
+
+    FingerprintIndex(int maxEntries) {
+        this.maxCapacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, maxEntries) * 2 - 1) * 2);
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Adds the fingerprint unless a live entry for it exists.
+     *
+     * @return true if added, false if it was already present and unexpired
+     */
+    boolean add(long fingerprint, long expiresAt, long now) {
+        int reusable = -1;
+        int i = slot(fingerprint);
+        while (fingerprints[i] != 0) {
+            if (fingerprints[i] == fingerprint && expiries[i] > now) {
+                return false;
+            }
+            if (reusable < 0 && expiries[i] <= now) {
+                reusable = i;
+            }
+            i = (i + 1) & mask;
+        }
+        if (reusable >= 0) {
+            i = reusable;
+        } else {
+            used++;
+        }
+        fingerprints[i] = fingerprint;
+        expiries[i] = expiresAt;
+        if (used > (mask + 1) / 4 * 3) {
+            resize(now);
+        }
+        return true;
+    }
+
+    void remove(long fingerprint, long now) {
+        for (int i = slot(fingerprint); fingerprints[i] != 0; i = (i + 1) & mask) {
+            if (fingerprints[i] == fingerprint && expiries[i] > now) {
+                // leave the fingerprint as a tombstone so probe chains stay intact
+                expiries[i] = 0;
+                return;
+            }
+        }
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    private void resize(long now) {
+        int live = 0;
+        for (int i = 0; i < expiries.length; i++) {
+            if (fingerprints[i] != 0 && expiries[i] > now) {
+                live++;
+            }
+        }
+        long cutoff = now;
+        int capacity = MIN_CAPACITY;
+        while (capacity < maxCapacity && capacity / 2 < live) {
+            capacity <<= 1;
+        }
+        if (live > capacity / 2) {
+            // Full of live entries at maximum size: keep only the newest half
+            cutoff = newestCutoff(now, live, capacity / 2);
+        }
+
+        long[] oldFingerprints = fingerprints;
+        long[] oldExpiries = expiries;
+        allocate(capacity);
+        for (int i = 0; i < oldFingerprints.length; i++) {
+            if (oldFingerprints[i] != 0 && oldExpiries[i] > cutoff) {
+                int j = slot(oldFingerprints[i]);
+                while (fingerprints[j] != 0) {
+                    j = (j + 1) & mask;
+                }
+                fingerprints[j] = oldFingerprints[i];
+                expiries[j] = oldExpiries[i];
+                used++;
+            }
+        }
+    }
+
+    private long newestCutoff(long now, int live, int keep) {
+        long[] liveExpiries = new long[live];
+        int n = 0;
+        for (int i = 0; i < expiries.length; i++) {
+            if (fingerprints[i] != 0 && expiries[i] > now) {
+                liveExpiries[n++] = expiries[i];
+            }
+        }
+        Arrays.sort(liveExpiries);
+        return liveExpiries[live - keep - 1];
+    }
+
+    private void allocate(int capacity) {
+        fingerprints = new long[capacity];
+        expiries = new long[capacity];
+        mask = capacity - 1;
+        used = 0;
+    }
+
+    private int slot(long fingerprint) {
+        return (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,90 @@
+package finos.traderx.tradeprocessor.dedup;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Remembers the ids of recently booked orders so redelivered or retried orders
+ * can be recognised without a database round trip. Ids are kept as 64-bit
+ * fingerprints for the configured retention window; a hit must still be
+ * confirmed against the ORDERID column, which is the durable record and
+ * what the index is rebuilt from on startup.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class OrderDedupIndex implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderDedupIndex.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${trade.dedup.retention:24h}")
+    private Duration retention;
+
+    @Value("${trade.dedup.max-entries:1000000}")
+    private int maxEntries;
+
+    private FingerprintIndex index;
+
+    /**
+     * Records the order id as booked.
+     *
+     * @return false if the id was already recorded within the retention window
+     */
+    public synchronized boolean add(String orderId) {
+        long now = System.currentTimeMillis();
+        return index.add(fingerprint(orderId), now + retention.toMillis(), now);
+    }
+
+    /**
+     * Forgets an order id whose booking did not complete.
+     */
+    public synchronized void remove(String orderId) {
+        index.remove(fingerprint(orderId), System.currentTimeMillis());
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        index = new FingerprintIndex(maxEntries);
+        long now = System.currentTimeMillis();
+        Timestamp since = new Timestamp(now - retention.toMillis());
+        int[] loaded = { 0 };
+        JdbcTemplate cursor = new JdbcTemplate(jdbcTemplate.getDataSource());
+        cursor.setFetchSize(1000);
+        cursor.query("SELECT ORDERID, CREATED FROM TRADES WHERE ORDERID IS NOT NULL AND CREATED >= ?", rs -> {
+            long created = rs.getTimestamp(2).getTime();
+            synchronized (this) {
+                index.add(fingerprint(rs.getString(1)), created + retention.toMillis(), now);
+            }
+            loaded[0]++;
+        }, since);
+        log.info("Loaded {} order ids booked since {} into dedup index ({} slots)", loaded[0], since, index.capacity());
+    }
+
+    // FNV-1a over the UTF-8 bytes, then the MurmurHash3 finalizer to spread
+    // the bits used for slot selection. Zero marks an empty slot.
+    static long fingerprint(String orderId) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : orderId.getBytes(StandardCharsets.UTF_8)) {
+            h ^= (b & 0xff);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+}
@@ -0,0 +1,12 @@
+package finos.traderx.tradeprocessor.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class DatabaseBusyException extends CannotCreateTransactionException {
+	public DatabaseBusyException(String message) {
+		super(message);
+	}
+}
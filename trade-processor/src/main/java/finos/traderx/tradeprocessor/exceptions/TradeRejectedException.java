@@ -0,0 +1,20 @@
+package finos.traderx.tradeprocessor.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import finos.traderx.tradeprocessor.model.TradeRejection;
+
+@ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+public class TradeRejectedException extends RuntimeException {
+	private final transient TradeRejection rejection;
+
+	public TradeRejectedException(TradeRejection rejection) {
+		super(rejection.getReason());
+		this.rejection = rejection;
+	}
+
+	public TradeRejection getRejection() {
+		return rejection;
+	}
+}
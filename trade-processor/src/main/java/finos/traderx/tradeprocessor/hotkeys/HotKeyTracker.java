@@ -0,0 +1,281 @@
+package finos.traderx.tradeprocessor.hotkeys;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * The most frequent keys over a sliding window, in fixed memory however many
+ * distinct keys occur. The window is a ring of slices; each slice keeps a
+ * Space-Saving summary, which names the candidates, and a Count-Min sketch,
+ * which estimates their counts. A key's count over the window is the sum of
+ * its estimates in the live slices, so it may be overstated but is never
+ * understated. The window slides a slice at a time.
+ *
+ * Recording only appends the key to a small buffer, one of several picked by
+ * thread, so order intake does not queue on one lock. A buffer is applied to
+ * the slices when it fills and before every read; each key goes to the slice
+ * it was recorded in, or is dropped if that slice has left the window.
+ *
+ * Reports 'hotkeys.events', the occurrences in the window, and 'hotkeys.share'
+ * tagged rank=1..ranks, the share of the window held by the key at that rank,
+ * both tagged with the tracker's name. Keys are not tags, to bound the number
+ * of series; they are listed by {@link #top}. The shares are ranked once per
+ * scrape, not once per gauge.
+ */
+public class HotKeyTracker {
+
+    private static final int BUFFER_SIZE = 64;
+
+    // how long a ranking serves the share gauges, so one scrape ranks once
+    private static final long SHARES_NANOS = 1_000_000_000L;
+
+    private final long sliceMillis;
+    private final Slice[] slices;
+    private final Buffer[] buffers;
+    private final int ranks;
+    private final ReentrantLock lock = new ReentrantLock();
+    // guarded by lock
+    private long latestSlice;
+    private List<HotKey> shares = List.of();
+    private long sharesRanked;
+
+    public HotKeyTracker(String name, Duration window, int sliceCount, int capacity, int sketchDepth, int sketchWidth,
+            int ranks, MeterRegistry registry) {
+        this.sliceMillis = Math.max(1, window.toMillis() / sliceCount);
+        this.slices = new Slice[sliceCount];
+        for (int i = 0; i < sliceCount; i++) {
+            slices[i] = new Slice(capacity, sketchDepth, sketchWidth);
+        }
+        // a power of two, at least twice the processors
+        this.buffers = new Buffer[Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1)];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new Buffer();
+        }
+        this.ranks = ranks;
+        this.latestSlice = System.currentTimeMillis() / sliceMillis;
+        Gauge.builder("hotkeys.events", this, HotKeyTracker::windowEvents)
+                .description("Occurrences of all keys in the window").tag("name", name).register(registry);
+        for (int rank = 1; rank <= ranks; rank++) {
+            int index = rank - 1;
+            Gauge.builder("hotkeys.share", this, tracker -> {
+                List<HotKey> top = tracker.shares();
+                return top.size() > index ? top.get(index).getShare() : 0;
+            }).description("Share of the window's occurrences held by the key at this rank")
+                    .tag("name", name).tag("rank", Integer.toString(rank)).register(registry);
+        }
+    }
+
+    public void record(String key) {
+        if (key == null) {
+            return;
+        }
+        Buffer buffer = buffers[(int) mix(Thread.currentThread().threadId()) & (buffers.length - 1)];
+        Buffer full = buffer.add(key, System.currentTimeMillis() / sliceMillis);
+        if (full != null) {
+            lock.lock();
+            try {
+                apply(full);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * The n keys with the highest estimated counts over the window, highest
+     * first.
+     */
+    public List<HotKey> top(int n) {
+        lock.lock();
+        try {
+            drain();
+            return rank(n);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long windowEvents() {
+        lock.lock();
+        try {
+            drain();
+            return events();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<HotKey> shares() {
+        lock.lock();
+        try {
+            if (System.nanoTime() - sharesRanked > SHARES_NANOS) {
+                drain();
+                shares = rank(ranks);
+                sharesRanked = System.nanoTime();
+            }
+            return shares;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<HotKey> rank(int n) {
+        long events = events();
+        Set<String> candidates = new HashSet<>();
+        for (Slice slice : slices) {
+            candidates.addAll(slice.keys.keys());
+        }
+        List<HotKey> result = new ArrayList<>(candidates.size());
+        for (String key : candidates) {
+            long hash = hash(key);
+            long count = 0;
+            for (Slice slice : slices) {
+                count += slice.sketch.estimate(hash);
+            }
+            result.add(new HotKey(key, count, events == 0 ? 0 : Math.min(1, (double) count / events)));
+        }
+        result.sort(Comparator.comparingLong(HotKey::getCount).reversed().thenComparing(HotKey::getKey));
+        return result.size() > n ? new ArrayList<>(result.subList(0, n)) : result;
+    }
+
+    private long events() {
+        long events = 0;
+        for (Slice slice : slices) {
+            events += slice.events;
+        }
+        return events;
+    }
+
+    private void drain() {
+        advance();
+        for (Buffer buffer : buffers) {
+            Buffer taken = buffer.take();
+            if (taken != null) {
+                apply(taken);
+            }
+        }
+    }
+
+    // Adds the buffered keys to the slices they were recorded in.
+    private void apply(Buffer buffer) {
+        advance();
+        for (int i = 0; i < buffer.size; i++) {
+            long slice = buffer.slices[i];
+            if (slice > latestSlice - slices.length && slice <= latestSlice) {
+                Slice target = slices[slot(slice)];
+                target.keys.add(buffer.keys[i]);
+                target.sketch.add(hash(buffer.keys[i]));
+                target.events++;
+            }
+        }
+    }
+
+    // Moves the ring to the current slice, clearing the slices it passes.
+    private void advance() {
+        long current = System.currentTimeMillis() / sliceMillis;
+        for (long s = Math.max(latestSlice + 1, current - slices.length + 1); s <= current; s++) {
+            slices[slot(s)].clear();
+        }
+        latestSlice = Math.max(latestSlice, current);
+    }
+
+    private int slot(long slice) {
+        return (int) Math.floorMod(slice, (long) slices.length);
+    }
+
+    // 64-bit FNV-1a with a final mix
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Keys recorded by the threads that share it, with the slice of each,
+     * not yet applied. A full buffer is handed back whole and replaced.
+     */
+    private static final class Buffer {
+        final ReentrantLock lock = new ReentrantLock();
+        // guarded by lock
+        String[] keys;
+        long[] slices;
+        int size;
+
+        Buffer() {
+            this(new String[BUFFER_SIZE], new long[BUFFER_SIZE], 0);
+        }
+
+        private Buffer(String[] keys, long[] slices, int size) {
+            this.keys = keys;
+            this.slices = slices;
+            this.size = size;
+        }
+
+        /**
+         * @return the keys so far, including this one, if the buffer is now full
+         */
+        Buffer add(String key, long slice) {
+            lock.lock();
+            try {
+                keys[size] = key;
+                slices[size] = slice;
+                return ++size == BUFFER_SIZE ? swap() : null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return the keys so far, or null if there are none
+         */
+        Buffer take() {
+            lock.lock();
+            try {
+                return size == 0 ? null : swap();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private Buffer swap() {
+            Buffer taken = new Buffer(keys, slices, size);
+            keys = new String[BUFFER_SIZE];
+            slices = new long[BUFFER_SIZE];
+            size = 0;
+            return taken;
+        }
+    }
+
+    private static final class Slice {
+        final SpaceSaving keys;
+        final CountMinSketch sketch;
+        long events;
+
+        Slice(int capacity, int sketchDepth, int sketchWidth) {
+            keys = new SpaceSaving(capacity);
+            sketch = new CountMinSketch(sketchDepth, sketchWidth);
+        }
+
+        void clear() {
+            keys.clear();
+            sketch.clear();
+            events = 0;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package finos.traderx.tradeprocessor.hotkeys;
+
+/**
+ * The most active accounts and securities among the orders received.
+ */
+public class OrderHotKeys {
+
+    private final HotKeyTracker accounts;
+    private final HotKeyTracker securities;
+
+    public OrderHotKeys(HotKeyTracker accounts, HotKeyTracker securities) {
+        this.accounts = accounts;
+        this.securities = securities;
+    }
+
+    public void record(Integer accountId, String security) {
+        if (accountId != null) {
+            accounts.record(accountId.toString());
+        }
+        securities.record(security);
+    }
+
+    public HotKeyTracker getAccounts() {
+        return accounts;
+    }
+
+    public HotKeyTracker getSecurities() {
+        return securities;
+    }
+}
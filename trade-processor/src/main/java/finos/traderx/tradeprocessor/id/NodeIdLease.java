@@ -0,0 +1,113 @@
+package finos.traderx.tradeprocessor.id;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * A node id for {@link TimeOrderedTradeIdGenerator} leased from TRADE_ID_NODES,
+ * so no two running instances use the same one, however many have started
+ * before. The lowest id whose lease is free or expired is claimed at startup,
+ * the lease is renewed well within its time to live and released on
+ * shutdown; startup fails when all node ids are held.
+ *
+ * The lease counts as held only until its time to live has passed since the
+ * last successful renewal began, by the local monotonic clock. That is never
+ * later than the expiry the database recorded, so ids stop being issued
+ * before another instance can claim the node id.
+ *
+ * Expiry is judged by the database clock, as for partition leases.
+ */
+public class NodeIdLease {
+
+    private static final Logger log = LoggerFactory.getLogger(NodeIdLease.class);
+
+    private static final String CLAIM = "MERGE INTO TRADE_ID_NODES N USING (VALUES (CAST(? AS INTEGER))) D(NODEID)"
+            + " ON N.NODEID = D.NODEID"
+            + " WHEN MATCHED AND (N.OWNER = ? OR N.EXPIRES < LOCALTIMESTAMP)"
+            + " THEN UPDATE SET OWNER = ?, EXPIRES = DATEADD(MILLISECOND, ?, LOCALTIMESTAMP)"
+            + " WHEN NOT MATCHED THEN INSERT (NODEID, OWNER, EXPIRES)"
+            + " VALUES (D.NODEID, ?, DATEADD(MILLISECOND, ?, LOCALTIMESTAMP))";
+
+    private static final String RENEW = "UPDATE TRADE_ID_NODES SET EXPIRES = DATEADD(MILLISECOND, ?, LOCALTIMESTAMP)"
+            + " WHERE NODEID = ? AND OWNER = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String owner;
+    private final long ttlMillis;
+    private int nodeId = -1;
+    // System.nanoTime() until which the lease is surely still ours
+    private volatile long heldUntil;
+
+    public NodeIdLease(JdbcTemplate jdbcTemplate, String owner, Duration ttl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.owner = owner;
+        this.ttlMillis = ttl.toMillis();
+    }
+
+    /**
+     * Claims the lowest free node id.
+     *
+     * @throws IllegalStateException if every node id is leased
+     */
+    public synchronized int acquire() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS TRADE_ID_NODES"
+                + " (NODEID INTEGER PRIMARY KEY, OWNER VARCHAR(100) NOT NULL, EXPIRES TIMESTAMP NOT NULL)");
+        List<Integer> held = jdbcTemplate.queryForList(
+                "SELECT NODEID FROM TRADE_ID_NODES WHERE EXPIRES >= LOCALTIMESTAMP AND OWNER <> ?", Integer.class, owner);
+        for (int candidate = 0; candidate <= TimeOrderedTradeIdGenerator.MAX_NODE_ID; candidate++) {
+            if (held.contains(candidate)) {
+                continue;
+            }
+            long start = System.nanoTime();
+            int claimed;
+            try {
+                claimed = jdbcTemplate.update(CLAIM, candidate, owner, owner, ttlMillis, owner, ttlMillis);
+            } catch (DuplicateKeyException x) {
+                // another instance inserted the same free id first; try the next
+                continue;
+            }
+            if (claimed == 1) {
+                nodeId = candidate;
+                heldUntil = start + ttlMillis * 1_000_000;
+                log.info("Leased trade id node {} as {}", candidate, owner);
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("All " + (TimeOrderedTradeIdGenerator.MAX_NODE_ID + 1)
+                + " trade id node ids are leased; stop an instance or wait for a dead one's lease to expire");
+    }
+
+    public synchronized void renew() {
+        if (nodeId < 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            if (jdbcTemplate.update(RENEW, ttlMillis, nodeId, owner) == 1) {
+                heldUntil = start + ttlMillis * 1_000_000;
+            } else {
+                heldUntil = start;
+                log.error("Lost the lease on trade id node {}, no trades can be booked until restart", nodeId);
+            }
+        } catch (RuntimeException x) {
+            log.error("Could not renew the lease on trade id node {}", nodeId, x);
+        }
+    }
+
+    public synchronized void release() {
+        if (nodeId >= 0) {
+            heldUntil = System.nanoTime();
+            jdbcTemplate.update("DELETE FROM TRADE_ID_NODES WHERE NODEID = ? AND OWNER = ?", nodeId, owner);
+            log.info("Released trade id node {}", nodeId);
+        }
+    }
+
+    public boolean isHeld() {
+        return System.nanoTime() - heldUntil < 0;
+    }
+}
@@ -0,0 +1,78 @@
+package finos.traderx.tradeprocessor.id;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 64-bit ids made of 41 bits of milliseconds since 2024-01-01, a 10 bit node
+ * id and a 12 bit per-millisecond sequence. Ids from one node are strictly
+ * increasing, and ids from nodes with different node ids never collide.
+ *
+ * The timestamp and sequence are advanced together with a single CAS. When
+ * the sequence runs out within a millisecond, or the clock steps backwards,
+ * the timestamp part simply moves ahead of the clock until it catches up.
+ *
+ * The text form is the id in 13 characters of Crockford base32, which sorts
+ * in the same order as the numbers, so new trades land at the end of the
+ * primary key index instead of at random positions.
+ *
+ * With a {@link NodeIdLease}, no id is issued once the lease on the node id
+ * may have lapsed, as another instance could then be using it.
+ */
+public class TimeOrderedTradeIdGenerator implements TradeIdGenerator {
+
+    public static final int NODE_BITS = 10;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int TEXT_LENGTH = 13;
+
+    private final long node;
+    private final NodeIdLease lease;
+    // (milliseconds since EPOCH << SEQUENCE_BITS) | sequence of the last id issued
+    private final AtomicLong state = new AtomicLong();
+
+    public TimeOrderedTradeIdGenerator(int nodeId) {
+        this(nodeId, null);
+    }
+
+    public TimeOrderedTradeIdGenerator(int nodeId, NodeIdLease lease) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.node = nodeId;
+        this.lease = lease;
+    }
+
+    @Override
+    public String nextId() {
+        if (lease != null && !lease.isHeld()) {
+            throw new IllegalStateException("The lease on trade id node " + node + " has lapsed");
+        }
+        return toText(nextLong());
+    }
+
+    public long nextLong() {
+        while (true) {
+            long last = state.get();
+            long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+            long next = now > last ? now : last + 1;
+            if (state.compareAndSet(last, next)) {
+                long millis = next >>> SEQUENCE_BITS;
+                long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+                return (millis << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | sequence;
+            }
+        }
+    }
+
+    static String toText(long id) {
+        char[] text = new char[TEXT_LENGTH];
+        for (int i = TEXT_LENGTH - 1; i >= 0; i--) {
+            text[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(text);
+    }
+}
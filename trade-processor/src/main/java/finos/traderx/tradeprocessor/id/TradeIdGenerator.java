@@ -0,0 +1,8 @@
+package finos.traderx.tradeprocessor.id;
+
+/**
+ * Supplies the ids of newly booked trades.
+ */
+public interface TradeIdGenerator {
+    public String nextId();
+}
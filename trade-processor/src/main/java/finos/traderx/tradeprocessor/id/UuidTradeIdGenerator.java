@@ -0,0 +1,14 @@
+package finos.traderx.tradeprocessor.id;
+
+import java.util.UUID;
+
+/**
+ * Random 36 character UUIDs, as trade ids were generated originally.
+ */
+public class UuidTradeIdGenerator implements TradeIdGenerator {
+
+    @Override
+    public String nextId() {
+        return UUID.randomUUID().toString();
+    }
+}
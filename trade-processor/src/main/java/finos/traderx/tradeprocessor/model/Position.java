@@ -64,4 +64,15 @@ public class Position implements Serializable {
 	public Date getUpdated(){
 		return this.updated;
 	}
+
+	@Column(name = "VERSION")
+	private Integer version;
+
+	public Integer getVersion() {
+		return this.version;
+	}
+
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
 }
@@ -1,6 +1,7 @@
 package finos.traderx.tradeprocessor.model;
 
 import java.io.Serializable;
+import java.util.Objects;
 
 public class PositionID implements Serializable {
 	private Integer accountId;
@@ -14,4 +15,28 @@ public class PositionID implements Serializable {
 			this.accountId = accountId;
 			this.security = security;
 	}
+
+	public Integer getAccountId() {
+		return this.accountId;
+	}
+
+	public String getSecurity() {
+		return this.security;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof PositionID other)) {
+			return false;
+		}
+		return Objects.equals(accountId, other.accountId) && Objects.equals(security, other.security);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(accountId, security);
+	}
 }
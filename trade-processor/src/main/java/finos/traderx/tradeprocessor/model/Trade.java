@@ -11,11 +11,18 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+
+import org.springframework.data.domain.Persistable;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
 @Table(name = "TRADES")
-public class Trade implements Serializable {
+public class Trade implements Serializable, Persistable<String> {
 
     @Serial
     private static final long serialVersionUID = 1L;
@@ -113,4 +120,32 @@ public class Trade implements Serializable {
 	public Date getCreated(){
         return this.created;
 	}
+
+	@Column(length = 50, name = "ORDERID", unique = true)
+	private String orderId;
+
+	public String getOrderId() {
+		return this.orderId;
+	}
+
+	public void setOrderId(String orderId) {
+		this.orderId = orderId;
+	}
+
+	// Trade ids are assigned before saving, so tell Spring Data whether this is
+	// an insert rather than letting it merge (and SELECT) every new trade.
+	@Transient
+	private boolean newTrade = true;
+
+	@Override
+	@JsonIgnore
+	public boolean isNew() {
+		return this.newTrade;
+	}
+
+	@PostLoad
+	@PostPersist
+	void markNotNew() {
+		this.newTrade = false;
+	}
 }
@@ -0,0 +1,32 @@
+package finos.traderx.tradeprocessor.model;
+
+import java.util.List;
+
+public class TradeBatchBookingResult {
+    List<Trade> trades;
+    List<Position> positions;
+    List<TradeRejection> rejections;
+    public TradeBatchBookingResult(List<Trade> trades, List<Position> positions, List<TradeRejection> rejections){
+        this.trades=trades;
+        this.positions=positions;
+        this.rejections=rejections;
+    }
+    /**
+     * The booked trades, in the same order as the accepted orders.
+     */
+    public List<Trade> getTrades() {
+        return trades;
+    }
+    /**
+     * The resulting positions, one per account/security touched by the batch.
+     */
+    public List<Position> getPositions() {
+        return positions;
+    }
+    /**
+     * The orders that were not booked because they breach a risk limit.
+     */
+    public List<TradeRejection> getRejections() {
+        return rejections;
+    }
+}
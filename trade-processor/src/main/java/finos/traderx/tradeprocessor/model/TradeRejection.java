@@ -0,0 +1,75 @@
+package finos.traderx.tradeprocessor.model;
+
+import java.util.Date;
+
+/**
+ * An order that failed a pre-trade risk check and was not booked.
+ */
+public class TradeRejection {
+    private String orderId;
+    private Integer accountId;
+    private String security;
+    private TradeSide side;
+    private Integer quantity;
+    private String rule;
+    private long limit;
+    private String reason;
+    private Date created;
+
+    public TradeRejection(TradeOrder order, String rule, long limit, String reason) {
+        this.orderId = order.getId();
+        this.accountId = order.getAccountId();
+        this.security = order.getSecurity();
+        this.side = order.getSide();
+        this.quantity = order.getQuantity();
+        this.rule = rule;
+        this.limit = limit;
+        this.reason = reason;
+        this.created = new Date();
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public Integer getAccountId() {
+        return accountId;
+    }
+
+    public String getSecurity() {
+        return security;
+    }
+
+    public TradeSide getSide() {
+        return side;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * The limit that was breached, e.g. maxOrderSize.
+     */
+    public String getRule() {
+        return rule;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public Date getCreated() {
+        return created;
+    }
+
+    @Override
+    public String toString() {
+        return "TradeRejection [orderId=" + orderId + ", accountId=" + accountId + ", security=" + security
+                + ", rule=" + rule + ", reason=" + reason + "]";
+    }
+}
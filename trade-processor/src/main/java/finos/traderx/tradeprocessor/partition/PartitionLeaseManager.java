@@ -0,0 +1,218 @@
+package finos.traderx.tradeprocessor.partition;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import finos.traderx.messaging.PubSubException;
+import finos.traderx.messaging.Subscriber;
+import finos.traderx.tradeprocessor.model.TradeOrder;
+import finos.traderx.tradeprocessor.risk.RiskEngine;
+
+/**
+ * Decides which /trades/{partition} topics this instance books. Each
+ * configured partition is subscribed only while this instance holds its
+ * lease in PARTITION_LEASES. Leases are renewed well within their time to
+ * live and released on shutdown, so a partition moves to another instance
+ * configured for it as soon as this one stops, or after the lease expires if
+ * it died. An instance that cannot renew a lease stops consuming the
+ * partition before the lease can be taken over. Before subscribing to a
+ * partition it took over, the instance reloads the risk exposure of the
+ * partition's accounts from POSITIONS, as the previous owner moved them.
+ *
+ * Orders published to a partition while no instance is subscribed, between
+ * one owner leaving and the next taking over, are lost: the trade feed
+ * keeps nothing for late subscribers and trade-service has already
+ * answered them. That gap lasts up to one renew interval after a clean
+ * shutdown and up to the lease time to live after a crash.
+ *
+ * Expiry is judged by the database clock, so instances need not agree on
+ * the time.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class PartitionLeaseManager implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PartitionLeaseManager.class);
+
+    private static final String ACQUIRE = "MERGE INTO PARTITION_LEASES L USING (VALUES (CAST(? AS INTEGER))) D(PARTITIONID)"
+            + " ON L.PARTITIONID = D.PARTITIONID"
+            + " WHEN MATCHED AND (L.OWNER = ? OR L.EXPIRES < LOCALTIMESTAMP)"
+            + " THEN UPDATE SET OWNER = ?, EXPIRES = DATEADD(MILLISECOND, ?, LOCALTIMESTAMP)"
+            + " WHEN NOT MATCHED THEN INSERT (PARTITIONID, OWNER, EXPIRES)"
+            + " VALUES (D.PARTITIONID, ?, DATEADD(MILLISECOND, ?, LOCALTIMESTAMP))";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private Subscriber<TradeOrder> tradeFeedHandler;
+
+    @Autowired
+    private RiskEngine riskEngine;
+
+    @Value("${trade.partitions:8}")
+    private int partitions;
+
+    // Empty means all partitions
+    @Value("${trade.processor.partitions:}")
+    private String assignedPartitions;
+
+    @Value("${trade.processor.instance-id:}")
+    private String instanceId;
+
+    @Value("${trade.partition.lease-ttl:15s}")
+    private Duration leaseTtl;
+
+    private Set<Integer> assigned;
+    private final Set<Integer> owned = new ConcurrentSkipListSet<>();
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public List<Integer> getAssigned() {
+        return List.copyOf(assigned);
+    }
+
+    public List<Integer> getOwned() {
+        return List.copyOf(owned);
+    }
+
+    public static String topic(int partition) {
+        return "/trades/" + partition;
+    }
+
+    /**
+     * The partition trade-service publishes the account's orders on; must
+     * match its TradePartitioner.
+     */
+    public static int partition(int accountId, int partitions) {
+        // MurmurHash3 fmix32, so consecutive account ids spread evenly
+        int h = accountId;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return Math.floorMod(h, partitions);
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        assigned = parse(assignedPartitions, partitions);
+        if (!StringUtils.hasText(instanceId)) {
+            instanceId = InetAddress.getLocalHost().getHostName() + "-" + ProcessHandle.current().pid();
+        }
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS PARTITION_LEASES"
+                + " (PARTITIONID INTEGER PRIMARY KEY, OWNER VARCHAR(100) NOT NULL, EXPIRES TIMESTAMP NOT NULL)");
+        log.info("Instance {} is configured for partitions {} of {}", instanceId, assigned, partitions);
+        renewLeases();
+    }
+
+    @Scheduled(fixedDelayString = "${trade.partition.lease-renew-interval:5s}", initialDelayString = "${trade.partition.lease-renew-interval:5s}")
+    public synchronized void renewLeases() {
+        List<Integer> acquired = new ArrayList<>();
+        for (int partition : assigned) {
+            boolean held;
+            try {
+                held = acquire(partition);
+            } catch (RuntimeException x) {
+                log.error("Could not renew lease on partition {}", partition, x);
+                held = false;
+            }
+            if (held && !owned.contains(partition)) {
+                acquired.add(partition);
+            } else if (!held && owned.remove(partition)) {
+                log.warn("Lost lease on partition {}, no longer booking its orders", partition);
+                try {
+                    tradeFeedHandler.unsubscribe(topic(partition));
+                } catch (PubSubException x) {
+                    log.error("Could not unsubscribe from partition {}", partition, x);
+                }
+            }
+        }
+        if (acquired.isEmpty()) {
+            return;
+        }
+        try {
+            riskEngine.reloadAccounts(accountId -> acquired.contains(partition(accountId, partitions)));
+        } catch (RuntimeException x) {
+            log.error("Could not reload risk exposure for partitions {}, retrying on the next renewal", acquired, x);
+            return;
+        }
+        for (int partition : acquired) {
+            try {
+                tradeFeedHandler.subscribe(topic(partition));
+                owned.add(partition);
+                log.info("Acquired partition {}", partition);
+            } catch (PubSubException x) {
+                log.error("Could not subscribe to partition {}", partition, x);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+        for (int partition : owned) {
+            try {
+                tradeFeedHandler.unsubscribe(topic(partition));
+                jdbcTemplate.update("DELETE FROM PARTITION_LEASES WHERE PARTITIONID = ? AND OWNER = ?", partition, instanceId);
+            } catch (PubSubException | RuntimeException x) {
+                log.warn("Could not release partition {}, it moves when the lease expires", partition, x);
+            }
+        }
+        log.info("Released partitions {}", owned);
+        owned.clear();
+    }
+
+    private boolean acquire(int partition) {
+        long ttl = leaseTtl.toMillis();
+        return jdbcTemplate.update(ACQUIRE, partition, instanceId, instanceId, ttl, instanceId, ttl) == 1;
+    }
+
+    /**
+     * Parses a list like "0,2,5-7"; empty means all partitions.
+     */
+    static Set<Integer> parse(String spec, int partitions) {
+        Set<Integer> result = new TreeSet<>();
+        if (!StringUtils.hasText(spec)) {
+            for (int p = 0; p < partitions; p++) {
+                result.add(p);
+            }
+            return result;
+        }
+        for (String part : spec.split(",")) {
+            String[] range = part.trim().split("-");
+            int from = Integer.parseInt(range[0].trim());
+            int to = range.length > 1 ? Integer.parseInt(range[1].trim()) : from;
+            if (from < 0 || to >= partitions || from > to) {
+                throw new IllegalArgumentException("Invalid partitions '" + part + "' for " + partitions + " partitions");
+            }
+            for (int p = from; p <= to; p++) {
+                result.add(p);
+            }
+        }
+        return result;
+    }
+}
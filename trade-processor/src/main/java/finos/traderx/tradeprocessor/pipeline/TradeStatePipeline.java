@@ -0,0 +1,162 @@
+package finos.traderx.tradeprocessor.pipeline;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import finos.traderx.messaging.Publisher;
+import finos.traderx.tradeprocessor.model.Trade;
+import finos.traderx.tradeprocessor.model.TradeState;
+import finos.traderx.tradeprocessor.repository.TradeRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Moves booked trades through New -> Processing -> Settled off the booking
+ * path. Each transition is its own stage with a bounded queue and its own
+ * workers. Booking never waits for the pipeline: trades that do not fit into
+ * a full queue stay in their state in the database. Trades left in New or
+ * Processing, by a previous run or by a full queue, are queued again by a
+ * recovery sweep that pages through them on startup and after any drop.
+ */
+@Component
+public class TradeStatePipeline implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(TradeStatePipeline.class);
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    @Autowired
+    private Publisher<Trade> tradePublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${trade.pipeline.processing.workers:2}")
+    private int processingWorkers;
+
+    @Value("${trade.pipeline.settlement.workers:2}")
+    private int settlementWorkers;
+
+    @Value("${trade.pipeline.batch-size:200}")
+    private int batchSize;
+
+    @Value("${trade.pipeline.queue-capacity:10000}")
+    private int queueCapacity;
+
+    private TradeStateStage processing;
+    private TradeStateStage settlement;
+    private final AtomicBoolean sweepNeeded = new AtomicBoolean(true);
+    private final AtomicBoolean recovering = new AtomicBoolean();
+
+    /**
+     * Queues newly booked trades for processing and settlement. The pipeline
+     * works on copies, the caller's trades keep the state they were booked in.
+     */
+    public void submit(List<Trade> trades) {
+        try {
+            int left = processing.offer(trades.stream().map(TradeStatePipeline::copy).toList(), 0, TimeUnit.SECONDS);
+            if (left > 0) {
+                log.warn("Pipeline is full, left {} trades for recovery", left);
+                sweepNeeded.set(true);
+            }
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void submit(Trade trade) {
+        submit(List.of(trade));
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        processing = new TradeStateStage("processing", TradeState.New, TradeState.Processing,
+                processingWorkers, batchSize, queueCapacity, tradeRepository, transactionManager, tradePublisher, meterRegistry);
+        settlement = new TradeStateStage("settlement", TradeState.Processing, TradeState.Settled,
+                settlementWorkers, batchSize, queueCapacity, tradeRepository, transactionManager, tradePublisher, meterRegistry);
+        processing.setNext(settlement);
+        processing.setOnDrop(() -> sweepNeeded.set(true));
+        settlement.setOnDrop(() -> sweepNeeded.set(true));
+        processing.start();
+        settlement.start();
+        Thread.ofVirtual().name("trade-pipeline-recovery").start(this::recover);
+    }
+
+    @Override
+    public void destroy() {
+        processing.stop();
+        settlement.stop();
+    }
+
+    private static Trade copy(Trade trade) {
+        Trade copy = new Trade();
+        copy.setId(trade.getId());
+        copy.setAccountId(trade.getAccountId());
+        copy.setSecurity(trade.getSecurity());
+        copy.setSide(trade.getSide());
+        copy.setQuantity(trade.getQuantity());
+        copy.setState(trade.getState());
+        copy.setCreated(trade.getCreated());
+        copy.setUpdated(trade.getUpdated());
+        copy.setOrderId(trade.getOrderId());
+        return copy;
+    }
+
+    @Scheduled(fixedDelayString = "${trade.pipeline.recovery-interval:30s}", initialDelayString = "${trade.pipeline.recovery-interval:30s}")
+    public void sweep() {
+        if (sweepNeeded.get()) {
+            Thread.ofVirtual().name("trade-pipeline-recovery").start(this::recover);
+        }
+    }
+
+    // Pages through unsettled trades by id; trades queued twice are skipped by
+    // the stage, whose update only moves trades still in its source state
+    private void recover() {
+        if (!recovering.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            sweepNeeded.set(false);
+            int resumed = 0;
+            String after = "";
+            List<Trade> page;
+            do {
+                page = tradeRepository.findByStateInAndIdGreaterThanOrderById(
+                        EnumSet.of(TradeState.New, TradeState.Processing), after, Limit.of(batchSize));
+                for (Trade trade : page) {
+                    (trade.getState() == TradeState.New ? processing : settlement).submit(List.of(trade));
+                }
+                resumed += page.size();
+                if (!page.isEmpty()) {
+                    after = page.get(page.size() - 1).getId();
+                }
+            } while (page.size() == batchSize);
+            if (resumed > 0) {
+                log.info("Resumed {} unsettled trades", resumed);
+            }
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException x) {
+            sweepNeeded.set(true);
+            log.error("Recovery sweep failed, retrying on the next one", x);
+        } finally {
+            recovering.set(false);
+        }
+    }
+}
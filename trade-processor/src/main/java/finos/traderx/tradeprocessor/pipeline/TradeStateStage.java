@@ -0,0 +1,219 @@
+package finos.traderx.tradeprocessor.pipeline;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import finos.traderx.messaging.PubSubException;
+import finos.traderx.messaging.Publisher;
+import finos.traderx.tradeprocessor.model.Trade;
+import finos.traderx.tradeprocessor.model.TradeState;
+import finos.traderx.tradeprocessor.repository.TradeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * One step of the trade state pipeline. Worker threads take batches of trades
+ * off a bounded queue, move them from one state to the next with a single
+ * update statement, publish each trade in its new state and hand the batch to
+ * the next stage. The trades still in the source state are locked first, and
+ * only those are moved, published and handed on, so a trade another worker or
+ * instance moved meanwhile is not published again.
+ *
+ * Trades that do not fit into a full queue are dropped, counted and left in
+ * their current state in the database, from where the pipeline's recovery
+ * sweep queues them again.
+ */
+class TradeStateStage {
+    private static final Logger log = LoggerFactory.getLogger(TradeStateStage.class);
+
+    private final String name;
+    private final TradeState from;
+    private final TradeState to;
+    private final int workers;
+    private final int batchSize;
+    private final BlockingQueue<Trade> queue;
+    private final TradeRepository tradeRepository;
+    private final TransactionTemplate transactions;
+    private final Publisher<Trade> tradePublisher;
+    private TradeStateStage next;
+    private Runnable onDrop = () -> {};
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final Counter advanced;
+    private final Counter skipped;
+    private final Counter dropped;
+    private final Timer batchTimer;
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+
+    TradeStateStage(String name, TradeState from, TradeState to, int workers, int batchSize, int capacity,
+            TradeRepository tradeRepository, PlatformTransactionManager transactionManager, Publisher<Trade> tradePublisher,
+            MeterRegistry registry) {
+        this.name = name;
+        this.from = from;
+        this.to = to;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.queue = new LinkedBlockingQueue<>(capacity);
+        this.tradeRepository = tradeRepository;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.tradePublisher = tradePublisher;
+
+        Gauge.builder("trade.pipeline.queue.size", queue, BlockingQueue::size)
+                .description("Trades waiting for this stage").tag("stage", name).register(registry);
+        Gauge.builder("trade.pipeline.queue.remaining", queue, BlockingQueue::remainingCapacity)
+                .description("Free slots in this stage's queue").tag("stage", name).register(registry);
+        Gauge.builder("trade.pipeline.workers.active", active, AtomicInteger::get)
+                .description("Workers of this stage currently advancing a batch").tag("stage", name).register(registry);
+        Gauge.builder("trade.pipeline.workers", () -> workers)
+                .description("Workers of this stage").tag("stage", name).register(registry);
+        this.advanced = Counter.builder("trade.pipeline.trades")
+                .description("Trades moved to the stage's target state").tag("stage", name).register(registry);
+        this.skipped = Counter.builder("trade.pipeline.trades.skipped")
+                .description("Trades that had already left the stage's source state").tag("stage", name).register(registry);
+        this.dropped = Counter.builder("trade.pipeline.trades.dropped")
+                .description("Trades left for recovery because this stage's queue was full").tag("stage", name).register(registry);
+        this.batchTimer = Timer.builder("trade.pipeline.batch")
+                .description("Time to advance one batch").tag("stage", name).register(registry);
+    }
+
+    void setNext(TradeStateStage next) {
+        this.next = next;
+    }
+
+    TradeState getFrom() {
+        return from;
+    }
+
+    /**
+     * Queues the trades for this stage, blocking while the queue is full.
+     */
+    void submit(List<Trade> trades) throws InterruptedException {
+        for (Trade trade : trades) {
+            queue.put(trade);
+        }
+    }
+
+    /**
+     * Queues the trades for this stage, waiting at most the given time for
+     * room and dropping those that still do not fit.
+     *
+     * @return the number of trades dropped
+     */
+    int offer(List<Trade> trades, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (int i = 0; i < trades.size(); i++) {
+            if (!queue.offer(trades.get(i), Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                int left = trades.size() - i;
+                dropped.increment(left);
+                return left;
+            }
+        }
+        return 0;
+    }
+
+    void setOnDrop(Runnable onDrop) {
+        this.onDrop = onDrop;
+    }
+
+    void start() {
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            threads.add(Thread.ofVirtual().name("trade-pipeline-" + name + "-" + i).start(this::run));
+        }
+    }
+
+    void stop() {
+        running = false;
+        threads.forEach(Thread::interrupt);
+    }
+
+    private void run() {
+        List<Trade> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Trade first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                active.incrementAndGet();
+                try {
+                    List<Trade> moved = batchTimer.recordCallable(() -> advance(batch));
+                    if (next != null && !moved.isEmpty()) {
+                        next.submit(moved);
+                    }
+                } finally {
+                    active.decrementAndGet();
+                }
+            } catch (InterruptedException x) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception x) {
+                log.error("Stage {} failed to move {} trades to {}, requeueing", name, batch.size(), to, x);
+                requeue(batch);
+            }
+            batch.clear();
+        }
+    }
+
+    private List<Trade> advance(List<Trade> batch) {
+        Date now = new Date();
+        List<String> ids = batch.stream().map(Trade::getId).toList();
+        // Trades that left the source state meanwhile, e.g. were cancelled or
+        // moved by another worker, are not locked and stay out of the update
+        Set<String> locked = transactions.execute(status -> {
+            List<String> inState = tradeRepository.findForUpdateByIdInAndStateOrderById(ids, from).stream()
+                    .map(Trade::getId).toList();
+            if (!inState.isEmpty()) {
+                tradeRepository.updateState(inState, from, to, now);
+            }
+            return Set.copyOf(inState);
+        });
+        List<Trade> moved = batch;
+        if (locked.size() != batch.size()) {
+            moved = batch.stream().filter(t -> locked.contains(t.getId())).toList();
+            skipped.increment(batch.size() - moved.size());
+        }
+        advanced.increment(moved.size());
+        for (Trade trade : moved) {
+            trade.setState(to);
+            trade.setUpdated(now);
+            try {
+                tradePublisher.publish("/accounts/" + trade.getAccountId() + "/trades", trade);
+            } catch (PubSubException exc) {
+                log.error("Error publishing trade {} state {}", trade.getId(), to, exc);
+            }
+        }
+        return moved;
+    }
+
+    // Blocking on a full queue of the next stage only waits for its workers,
+    // but a worker putting back into its own full queue would wait on itself
+    private void requeue(List<Trade> batch) {
+        try {
+            Thread.sleep(1000);
+            int left = offer(batch, 1, TimeUnit.SECONDS);
+            if (left > 0) {
+                log.warn("Stage {} queue is full, left {} trades for recovery", name, left);
+                onDrop.run();
+            }
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
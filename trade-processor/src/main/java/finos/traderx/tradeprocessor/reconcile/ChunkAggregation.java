@@ -0,0 +1,50 @@
+package finos.traderx.tradeprocessor.reconcile;
+
+import java.util.concurrent.RecursiveTask;
+
+import finos.traderx.tradeprocessor.collections.LongLongMap;
+import finos.traderx.tradeprocessor.collections.SecurityDictionary;
+
+/**
+ * Sums a range of a chunk per account and security, splitting the range in
+ * halves until it is small enough to aggregate directly.
+ */
+class ChunkAggregation extends RecursiveTask<LongLongMap> {
+
+    private static final int LEAF_SIZE = 4096;
+
+    private final TradeChunk chunk;
+    private final int from;
+    private final int to;
+
+    ChunkAggregation(TradeChunk chunk, int from, int to) {
+        this.chunk = chunk;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected LongLongMap compute() {
+        if (to - from <= LEAF_SIZE) {
+            LongLongMap sums = new LongLongMap(256);
+            for (int i = from; i < to; i++) {
+                sums.add(SecurityDictionary.key(chunk.accountIds[i], chunk.securityCodes[i]), chunk.quantities[i]);
+            }
+            return sums;
+        }
+        int mid = (from + to) >>> 1;
+        ChunkAggregation left = new ChunkAggregation(chunk, from, mid);
+        left.fork();
+        LongLongMap right = new ChunkAggregation(chunk, mid, to).compute();
+        return merge(left.join(), right);
+    }
+
+    static LongLongMap merge(LongLongMap a, LongLongMap b) {
+        if (a.size() < b.size()) {
+            b.addAll(a);
+            return b;
+        }
+        a.addAll(b);
+        return a;
+    }
+}
@@ -0,0 +1,40 @@
+package finos.traderx.tradeprocessor.reconcile;
+
+/**
+ * A position whose stored quantity differs from the sum of its trades.
+ */
+public class PositionMismatch {
+    private final int accountId;
+    private final String security;
+    private final long expected;
+    private final Long actual;
+
+    PositionMismatch(int accountId, String security, long expected, Long actual) {
+        this.accountId = accountId;
+        this.security = security;
+        this.expected = expected;
+        this.actual = actual;
+    }
+
+    public int getAccountId() {
+        return accountId;
+    }
+
+    public String getSecurity() {
+        return security;
+    }
+
+    /**
+     * The net quantity of the position's trades that are not cancelled.
+     */
+    public long getExpected() {
+        return expected;
+    }
+
+    /**
+     * The quantity in POSITIONS, or null if there is no such position.
+     */
+    public Long getActual() {
+        return actual;
+    }
+}
@@ -0,0 +1,209 @@
+package finos.traderx.tradeprocessor.reconcile;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import finos.traderx.tradeprocessor.collections.LongLongMap;
+import finos.traderx.tradeprocessor.collections.SecurityDictionary;
+import finos.traderx.tradeprocessor.model.PositionID;
+import finos.traderx.tradeprocessor.repository.PositionRepository;
+import finos.traderx.tradeprocessor.risk.RiskEngine;
+
+/**
+ * Recomputes every position from the trades that are not cancelled and
+ * compares the result with POSITIONS.
+ *
+ * Trades are streamed through a JDBC cursor into fixed size chunks of
+ * primitive arrays; each full chunk is summed on the fork-join pool while the
+ * next one is read, and the partial sums are merged as they complete, so
+ * memory depends on the number of positions rather than the number of
+ * trades. Trades and positions are read in one repeatable-read transaction
+ * and therefore from the same snapshot.
+ *
+ * A repair adds the difference to each mismatched position, so bookings that
+ * happened since the snapshot are kept.
+ */
+@Component
+public class PositionReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(PositionReconciler.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PositionRepository positionRepository;
+
+    @Autowired
+    private RiskEngine riskEngine;
+
+    @Value("${trade.reconcile.chunk-size:65536}")
+    private int chunkSize;
+
+    @Value("${trade.reconcile.fetch-size:10000}")
+    private int fetchSize;
+
+    @Value("${trade.reconcile.max-reported:1000}")
+    private int maxReported;
+
+    @Value("${trade.reconcile.scheduled-repair:false}")
+    private boolean scheduledRepair;
+
+    private volatile ReconciliationReport lastReport;
+
+    public ReconciliationReport getLastReport() {
+        return lastReport;
+    }
+
+    @Scheduled(cron = "${trade.reconcile.cron:-}")
+    public void scheduledReconcile() {
+        try {
+            reconcile(scheduledRepair);
+        } catch (RuntimeException x) {
+            log.error("Scheduled position reconciliation failed", x);
+        }
+    }
+
+    /**
+     * Runs one reconciliation; concurrent calls wait for the running one.
+     *
+     * @param repair whether to correct the mismatched positions
+     */
+    public synchronized ReconciliationReport reconcile(boolean repair) {
+        Date started = new Date();
+        long start = System.nanoTime();
+        SecurityDictionary securities = new SecurityDictionary();
+
+        TransactionTemplate snapshot = new TransactionTemplate(transactionManager);
+        snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshot.setReadOnly(true);
+        Diff diff = snapshot.execute(status -> {
+            Diff d = new Diff();
+            LongLongMap expected = sumTrades(securities, d);
+            comparePositions(expected, securities, d);
+            return d;
+        });
+
+        long repaired = 0;
+        if (repair && diff.corrections.size() > 0) {
+            repaired = repair(diff.corrections, securities);
+        }
+        ReconciliationReport report = new ReconciliationReport(started, (System.nanoTime() - start) / 1_000_000,
+                diff.tradesScanned, diff.positionsChecked, diff.mismatchCount, diff.reported, repaired);
+        if (report.getMismatchCount() > 0) {
+            log.warn("Reconciled {} trades against {} positions in {} ms: {} mismatches, {} repaired",
+                    report.getTradesScanned(), report.getPositionsChecked(), report.getDurationMillis(),
+                    report.getMismatchCount(), repaired);
+        } else {
+            log.info("Reconciled {} trades against {} positions in {} ms: no mismatches",
+                    report.getTradesScanned(), report.getPositionsChecked(), report.getDurationMillis());
+        }
+        lastReport = report;
+        return report;
+    }
+
+    private LongLongMap sumTrades(SecurityDictionary securities, Diff diff) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int maxPending = pool.getParallelism() * 2;
+        Deque<ForkJoinTask<LongLongMap>> pending = new ArrayDeque<>();
+        LongLongMap[] total = { new LongLongMap(1024) };
+        TradeChunk[] chunk = { new TradeChunk(chunkSize) };
+
+        JdbcTemplate cursor = new JdbcTemplate(jdbcTemplate.getDataSource());
+        cursor.setFetchSize(fetchSize);
+        cursor.query("SELECT ACCOUNTID, SECURITY, SIDE, QUANTITY FROM TRADES WHERE STATE <> 'Cancelled'", rs -> {
+            int quantity = rs.getInt(4);
+            chunk[0].add(rs.getInt(1), securities.code(rs.getString(2)), "Buy".equals(rs.getString(3)) ? quantity : -quantity);
+            if (chunk[0].isFull()) {
+                pending.add(pool.submit(new ChunkAggregation(chunk[0], 0, chunk[0].size)));
+                diff.tradesScanned += chunk[0].size;
+                chunk[0] = new TradeChunk(chunkSize);
+                if (pending.size() > maxPending) {
+                    total[0] = ChunkAggregation.merge(total[0], pending.poll().join());
+                }
+            }
+        });
+        diff.tradesScanned += chunk[0].size;
+        total[0] = ChunkAggregation.merge(total[0], new ChunkAggregation(chunk[0], 0, chunk[0].size).invoke());
+        while (!pending.isEmpty()) {
+            total[0] = ChunkAggregation.merge(total[0], pending.poll().join());
+        }
+        return total[0];
+    }
+
+    private void comparePositions(LongLongMap expected, SecurityDictionary securities, Diff diff) {
+        LongLongMap seen = new LongLongMap(expected.size());
+        JdbcTemplate cursor = new JdbcTemplate(jdbcTemplate.getDataSource());
+        cursor.setFetchSize(fetchSize);
+        cursor.query("SELECT ACCOUNTID, SECURITY, QUANTITY FROM POSITIONS", rs -> {
+            int accountId = rs.getInt(1);
+            String security = rs.getString(2);
+            long actual = rs.getLong(3);
+            long key = SecurityDictionary.key(accountId, securities.code(security));
+            long quantity = expected.get(key, 0);
+            seen.put(key, 1);
+            diff.positionsChecked++;
+            if (quantity != actual) {
+                diff.mismatch(key, new PositionMismatch(accountId, security, quantity, actual), quantity - actual, maxReported);
+            }
+        });
+        expected.forEach((key, quantity) -> {
+            if (quantity != 0 && seen.get(key, 0) == 0) {
+                int accountId = SecurityDictionary.accountId(key);
+                String security = securities.security(SecurityDictionary.securityCode(key));
+                diff.mismatch(key, new PositionMismatch(accountId, security, quantity, null), quantity, maxReported);
+            }
+        });
+    }
+
+    private long repair(LongLongMap corrections, SecurityDictionary securities) {
+        Map<PositionID, Integer> deltas = new HashMap<>();
+        corrections.forEach((key, delta) -> deltas.put(new PositionID(SecurityDictionary.accountId(key),
+                securities.security(SecurityDictionary.securityCode(key))), Math.toIntExact(delta)));
+        transactionTemplate.executeWithoutResult(status -> positionRepository.applyDeltas(deltas, new Date()));
+        // The risk engine was seeded from the same wrong quantities
+        deltas.forEach((id, delta) -> riskEngine.adjust(id.getAccountId(), id.getSecurity(), delta));
+        log.info("Repaired {} positions", deltas.size());
+        return deltas.size();
+    }
+
+    private static class Diff {
+        final LongLongMap corrections = new LongLongMap(64);
+        final List<PositionMismatch> reported = new ArrayList<>();
+        long tradesScanned;
+        long positionsChecked;
+        long mismatchCount;
+
+        void mismatch(long key, PositionMismatch mismatch, long correction, int maxReported) {
+            corrections.put(key, correction);
+            mismatchCount++;
+            if (reported.size() < maxReported) {
+                reported.add(mismatch);
+            }
+        }
+    }
+}
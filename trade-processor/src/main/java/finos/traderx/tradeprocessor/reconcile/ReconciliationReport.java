@@ -0,0 +1,59 @@
+package finos.traderx.tradeprocessor.reconcile;
+
+import java.util.Date;
+import java.util.List;
+
+public class ReconciliationReport {
+    private final Date started;
+    private final long durationMillis;
+    private final long tradesScanned;
+    private final long positionsChecked;
+    private final long mismatchCount;
+    private final List<PositionMismatch> mismatches;
+    private final long repaired;
+
+    ReconciliationReport(Date started, long durationMillis, long tradesScanned, long positionsChecked,
+            long mismatchCount, List<PositionMismatch> mismatches, long repaired) {
+        this.started = started;
+        this.durationMillis = durationMillis;
+        this.tradesScanned = tradesScanned;
+        this.positionsChecked = positionsChecked;
+        this.mismatchCount = mismatchCount;
+        this.mismatches = mismatches;
+        this.repaired = repaired;
+    }
+
+    public Date getStarted() {
+        return started;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public long getTradesScanned() {
+        return tradesScanned;
+    }
+
+    public long getPositionsChecked() {
+        return positionsChecked;
+    }
+
+    public long getMismatchCount() {
+        return mismatchCount;
+    }
+
+    /**
+     * The mismatches found, up to trade.reconcile.max-reported of them.
+     */
+    public List<PositionMismatch> getMismatches() {
+        return mismatches;
+    }
+
+    /**
+     * The number of positions corrected, 0 unless a repair was requested.
+     */
+    public long getRepaired() {
+        return repaired;
+    }
+}
@@ -0,0 +1,29 @@
+package finos.traderx.tradeprocessor.reconcile;
+
+/**
+ * A block of trades as parallel primitive arrays, filled by the cursor
+ * reader and aggregated by a {@link ChunkAggregation}.
+ */
+class TradeChunk {
+    final int[] accountIds;
+    final int[] securityCodes;
+    final int[] quantities;
+    int size;
+
+    TradeChunk(int capacity) {
+        accountIds = new int[capacity];
+        securityCodes = new int[capacity];
+        quantities = new int[capacity];
+    }
+
+    void add(int accountId, int securityCode, int signedQuantity) {
+        accountIds[size] = accountId;
+        securityCodes[size] = securityCode;
+        quantities[size] = signedQuantity;
+        size++;
+    }
+
+    boolean isFull() {
+        return size == accountIds.length;
+    }
+}
@@ -0,0 +1,19 @@
+package finos.traderx.tradeprocessor.repository;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import finos.traderx.tradeprocessor.model.Position;
+import finos.traderx.tradeprocessor.model.PositionID;
+
+public interface PositionDeltaRepository {
+
+    /**
+     * Adds the signed quantity deltas to the positions in the database,
+     * creating positions that do not exist yet, and returns the resulting
+     * positions. Joins the caller's transaction.
+     */
+    List<Position> applyDeltas(Map<PositionID, Integer> deltas, Date updated);
+
+}
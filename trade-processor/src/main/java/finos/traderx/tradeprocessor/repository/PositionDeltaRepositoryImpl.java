@@ -0,0 +1,119 @@
+package finos.traderx.tradeprocessor.repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import finos.traderx.tradeprocessor.model.Position;
+import finos.traderx.tradeprocessor.model.PositionID;
+
+/**
+ * Applies position deltas as database-side increments, so concurrent
+ * processors never overwrite each other's increments. Each position is
+ * changed by its own single-row MERGE, in a fixed key order, which creates
+ * the position if it is missing. The resulting quantities are read back
+ * afterwards; the merged rows stay locked by the caller's transaction, so
+ * they are exactly what the merges produced.
+ *
+ * Bookings commit in any order, so a position's Updated only ever moves
+ * forward. Every merge also adds one to its Version, which readers of the
+ * published positions use to order them and to notice one they missed.
+ *
+ * H2 misapplies rows of a multi-row MERGE, with or without FINAL TABLE, when
+ * it restarts the statement after a lock wait: some deltas are applied twice,
+ * others lost. Single-row statements are restarted correctly. Nor are they
+ * sent as a JDBC batch: H2 carries on with the batch after a row fails, which
+ * would lock later rows before the failed one is retried.
+ */
+class PositionDeltaRepositoryImpl implements PositionDeltaRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(PositionDeltaRepositoryImpl.class);
+
+    // Keeps the read back under 1000 parameters
+    private static final int CHUNK_SIZE = 250;
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final String MERGE = "MERGE INTO POSITIONS P USING (VALUES (CAST(? AS INTEGER), CAST(? AS VARCHAR(50)),"
+            + " CAST(? AS INTEGER), CAST(? AS TIMESTAMP))) D(ACCOUNTID, SECURITY, DELTA, UPDATED)"
+            + " ON P.ACCOUNTID = D.ACCOUNTID AND P.SECURITY = D.SECURITY"
+            + " WHEN MATCHED THEN UPDATE SET QUANTITY = P.QUANTITY + D.DELTA,"
+            + " UPDATED = CASE WHEN P.UPDATED > D.UPDATED THEN P.UPDATED ELSE D.UPDATED END, VERSION = P.VERSION + 1"
+            + " WHEN NOT MATCHED THEN INSERT (ACCOUNTID, SECURITY, QUANTITY, UPDATED, VERSION)"
+            + " VALUES (D.ACCOUNTID, D.SECURITY, D.DELTA, D.UPDATED, 1)";
+
+    // Locks rows in a fixed order so two overlapping bookings cannot deadlock
+    private static final Comparator<PositionID> LOCK_ORDER = Comparator.comparing(PositionID::getAccountId)
+            .thenComparing(PositionID::getSecurity);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Position> applyDeltas(Map<PositionID, Integer> deltas, Date updated) {
+        List<PositionID> ids = new ArrayList<>(deltas.keySet());
+        ids.sort(LOCK_ORDER);
+        Timestamp timestamp = new Timestamp(updated.getTime());
+        for (PositionID id : ids) {
+            merge(id, deltas.get(id), timestamp);
+        }
+
+        List<Position> positions = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            positions.addAll(select(ids.subList(from, Math.min(ids.size(), from + CHUNK_SIZE))));
+        }
+        return positions;
+    }
+
+    private void merge(PositionID id, int delta, Timestamp updated) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                jdbcTemplate.update(MERGE, id.getAccountId(), id.getSecurity(), delta, updated);
+                return;
+            } catch (DuplicateKeyException x) {
+                // Another processor inserted the position first; the next
+                // attempt finds it and updates it instead.
+                if (attempt == MAX_ATTEMPTS) {
+                    throw x;
+                }
+                log.info("Position {}/{} created concurrently, retrying merge", id.getAccountId(), id.getSecurity());
+            }
+        }
+    }
+
+    private List<Position> select(List<PositionID> chunk) {
+        Object[] keys = new Object[chunk.size() * 2];
+        int i = 0;
+        for (PositionID id : chunk) {
+            keys[i++] = id.getAccountId();
+            keys[i++] = id.getSecurity();
+        }
+        return jdbcTemplate.query(selectStatement(chunk.size()), (rs, row) -> {
+            Position position = new Position();
+            position.setAccountId(rs.getInt(1));
+            position.setSecurity(rs.getString(2));
+            position.setQuantity(rs.getInt(3));
+            position.setUpdated(rs.getTimestamp(4));
+            position.setVersion(rs.getInt(5));
+            return position;
+        }, keys);
+    }
+
+    private static String selectStatement(int rows) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT ACCOUNTID, SECURITY, QUANTITY, UPDATED, VERSION FROM POSITIONS WHERE (ACCOUNTID, SECURITY) IN (");
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+        }
+        return sql.append(")").toString();
+    }
+}
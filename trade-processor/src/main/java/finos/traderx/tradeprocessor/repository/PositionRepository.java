@@ -4,13 +4,17 @@ package finos.traderx.tradeprocessor.repository;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
 
 import finos.traderx.tradeprocessor.model.Position;
 import finos.traderx.tradeprocessor.model.PositionID;
 
-public interface PositionRepository extends JpaRepository<Position,PositionID> {
+public interface PositionRepository extends JpaRepository<Position,PositionID>, PositionDeltaRepository {
 
+    @Transactional(readOnly = true)
     List<Position> findByAccountId(Integer id);
+
+    @Transactional(readOnly = true)
     Position findByAccountIdAndSecurity(Integer id, String security);
 
 }
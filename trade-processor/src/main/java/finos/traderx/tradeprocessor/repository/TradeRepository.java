@@ -1,13 +1,53 @@
 package finos.traderx.tradeprocessor.repository;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import finos.traderx.tradeprocessor.model.Trade;
+import finos.traderx.tradeprocessor.model.TradeState;
+import jakarta.persistence.LockModeType;
 
-public interface TradeRepository extends JpaRepository<Trade, Integer> {
+@Transactional(readOnly = true)
+public interface TradeRepository extends JpaRepository<Trade, String> {
     
     List<Trade> findByAccountId(Integer id);
+
+    Trade findByOrderId(String orderId);
+
+    List<Trade> findByOrderIdIn(Collection<String> orderIds);
+
+    List<Trade> findByIdIn(Collection<String> ids);
+
+    List<Trade> findByStateInAndIdGreaterThanOrderById(Collection<TradeState> states, String after, Limit limit);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Trade> findForUpdateById(String id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<Trade> findForUpdateByAccountIdAndStateNot(Integer accountId, TradeState state);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<Trade> findForUpdateByIdInAndStateOrderById(Collection<String> ids, TradeState state);
+
+    /**
+     * Moves the trades that are still in the given state to the next one.
+     *
+     * @return the number of trades moved
+     */
+    @Modifying
+    @Transactional
+    @Query("update Trade t set t.state = :to, t.updated = :updated where t.id in :ids and t.state = :from")
+    int updateState(@Param("ids") Collection<String> ids, @Param("from") TradeState from,
+            @Param("to") TradeState to, @Param("updated") Date updated);
     
 }
@@ -0,0 +1,261 @@
+package finos.traderx.tradeprocessor.risk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import finos.traderx.tradeprocessor.collections.LongLongMap;
+import finos.traderx.tradeprocessor.collections.SecurityDictionary;
+import finos.traderx.tradeprocessor.model.Trade;
+import finos.traderx.tradeprocessor.model.TradeOrder;
+import finos.traderx.tradeprocessor.model.TradeRejection;
+import finos.traderx.tradeprocessor.model.TradeSide;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Pre-trade risk checks against the limits in the limits file. Current
+ * positions and per-account gross exposure are kept in memory, seeded from
+ * POSITIONS on startup and moved by every accepted order, so a check is a few
+ * primitive map lookups under one lock.
+ *
+ * An accepted order reserves its quantity immediately; the caller releases
+ * the reservation if booking then fails. The limits file is re-read when it
+ * changes, or on demand through {@link #reloadLimits()}.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class RiskEngine implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(RiskEngine.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${trade.risk.limits:classpath:risk-limits.json}")
+    private Resource limitsFile;
+
+    private final SecurityDictionary securities = new SecurityDictionary();
+    // (account id, security code) -> signed quantity
+    private final LongLongMap positions = new LongLongMap(1024);
+    // account id -> sum of absolute quantities
+    private final LongLongMap grossExposure = new LongLongMap(256);
+
+    private volatile RiskLimits limits = RiskLimits.none();
+    private long limitsModified;
+
+    private Counter accepted;
+    private Counter incomplete;
+    private final Map<RiskRule, Counter> rejected = new EnumMap<>(RiskRule.class);
+
+    /**
+     * Checks the order against the limits and, if it passes, adds it to the
+     * account's exposure. Orders missing an account, security, side or
+     * quantity cannot be checked and are rejected.
+     *
+     * @return null if the order is accepted, otherwise why it was rejected
+     */
+    public TradeRejection reserve(TradeOrder order) {
+        if (!complete(order)) {
+            incomplete.increment();
+            return new TradeRejection(order, "completeOrder", 0,
+                    "Order needs an account, a security, a side and a quantity");
+        }
+        int accountId = order.getAccountId();
+        int security = securities.code(order.getSecurity());
+        long quantity = order.getQuantity();
+        RiskLimits limits = this.limits;
+
+        long maxOrderSize = limits.limit(RiskRule.MAX_ORDER_SIZE, accountId, security);
+        if (quantity > maxOrderSize) {
+            return reject(order, RiskRule.MAX_ORDER_SIZE, maxOrderSize,
+                    "Order quantity " + quantity + " exceeds the maximum order size of " + maxOrderSize);
+        }
+
+        long delta = signed(order);
+        long key = SecurityDictionary.key(accountId, security);
+        synchronized (this) {
+            long position = positions.get(key, 0);
+            long next = position + delta;
+            // Orders that reduce a breached position are always allowed
+            long maxLong = limits.limit(RiskRule.MAX_LONG, accountId, security);
+            if (next > maxLong && next > position) {
+                return reject(order, RiskRule.MAX_LONG, maxLong,
+                        "Position of " + next + " " + order.getSecurity() + " would exceed the long limit of " + maxLong);
+            }
+            long maxShort = limits.limit(RiskRule.MAX_SHORT, accountId, security);
+            if (-next > maxShort && next < position) {
+                return reject(order, RiskRule.MAX_SHORT, maxShort,
+                        "Position of " + next + " " + order.getSecurity() + " would exceed the short limit of " + maxShort);
+            }
+            long gross = grossExposure.get(accountId, 0);
+            long nextGross = gross - Math.abs(position) + Math.abs(next);
+            long maxGross = limits.limit(RiskRule.MAX_GROSS_EXPOSURE, accountId, 0);
+            if (nextGross > maxGross && nextGross > gross) {
+                return reject(order, RiskRule.MAX_GROSS_EXPOSURE, maxGross,
+                        "Gross exposure of " + nextGross + " would exceed the limit of " + maxGross);
+            }
+            positions.put(key, next);
+            grossExposure.put(accountId, nextGross);
+        }
+        accepted.increment();
+        return null;
+    }
+
+    /**
+     * Takes back the reservation of an accepted order that was not booked.
+     */
+    public void release(TradeOrder order) {
+        if (!complete(order)) {
+            return;
+        }
+        apply(order.getAccountId(), order.getSecurity(), -signed(order));
+    }
+
+    /**
+     * Takes a cancelled trade out of the account's exposure.
+     */
+    public void reverse(Trade trade) {
+        apply(trade.getAccountId(), trade.getSecurity(), (trade.getSide() == TradeSide.Buy ? -1L : 1L) * trade.getQuantity());
+    }
+
+    /**
+     * Moves a position by the given quantity, for changes made outside
+     * booking and cancellation.
+     */
+    public void adjust(int accountId, String security, long delta) {
+        apply(accountId, security, delta);
+    }
+
+    /**
+     * Replaces the exposure of the matching accounts with their positions in
+     * POSITIONS, for accounts whose orders another instance booked until now.
+     */
+    public void reloadAccounts(IntPredicate accounts) {
+        LongLongMap loaded = new LongLongMap(1024);
+        jdbcTemplate.query("SELECT ACCOUNTID, SECURITY, QUANTITY FROM POSITIONS", rs -> {
+            int accountId = rs.getInt(1);
+            if (accounts.test(accountId)) {
+                loaded.add(SecurityDictionary.key(accountId, securities.code(rs.getString(2))), rs.getLong(3));
+            }
+        });
+        synchronized (this) {
+            positions.forEach((key, quantity) -> {
+                if (accounts.test(SecurityDictionary.accountId(key))) {
+                    positions.put(key, 0);
+                }
+            });
+            grossExposure.forEach((accountId, gross) -> {
+                if (accounts.test((int) accountId)) {
+                    grossExposure.put(accountId, 0);
+                }
+            });
+            loaded.forEach((key, quantity) -> {
+                positions.put(key, quantity);
+                grossExposure.add(SecurityDictionary.accountId(key), Math.abs(quantity));
+            });
+        }
+        log.info("Reloaded {} positions into risk engine", loaded.size());
+    }
+
+    /**
+     * Re-reads the limits file. The current limits stay in force if it cannot
+     * be read or parsed.
+     */
+    public synchronized RiskLimitsSummary reloadLimits() throws IOException {
+        long modified = lastModified();
+        RiskLimits loaded;
+        try (InputStream in = limitsFile.getInputStream()) {
+            loaded = RiskLimits.parse(objectMapper.readTree(in), securities);
+        }
+        limits = loaded;
+        limitsModified = modified;
+        log.info("Loaded risk limits from {}: {} accounts, {} securities", limitsFile, loaded.accounts(), loaded.securities());
+        return new RiskLimitsSummary(limitsFile.getDescription(), loaded.accounts(), loaded.securities());
+    }
+
+    @Scheduled(fixedDelayString = "${trade.risk.limits-check-interval:30s}")
+    public void reloadLimitsIfChanged() {
+        if (lastModified() == limitsModified) {
+            return;
+        }
+        try {
+            reloadLimits();
+        } catch (IOException | RuntimeException x) {
+            log.error("Could not reload risk limits from {}, keeping the current limits", limitsFile, x);
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        accepted = Counter.builder("trade.risk.checks").description("Orders checked against risk limits")
+                .tag("outcome", "accepted").tag("rule", "none").register(meterRegistry);
+        incomplete = Counter.builder("trade.risk.checks").description("Orders checked against risk limits")
+                .tag("outcome", "rejected").tag("rule", "completeOrder").register(meterRegistry);
+        for (RiskRule rule : RiskRule.values()) {
+            rejected.put(rule, Counter.builder("trade.risk.checks").description("Orders checked against risk limits")
+                    .tag("outcome", "rejected").tag("rule", rule.getKey()).register(meterRegistry));
+        }
+        if (limitsFile.exists()) {
+            reloadLimits();
+        } else {
+            log.warn("No risk limits file at {}, orders are not limited", limitsFile);
+        }
+        int[] loaded = { 0 };
+        jdbcTemplate.query("SELECT ACCOUNTID, SECURITY, QUANTITY FROM POSITIONS", rs -> {
+            apply(rs.getInt(1), rs.getString(2), rs.getLong(3));
+            loaded[0]++;
+        });
+        log.info("Loaded {} positions into risk engine", loaded[0]);
+    }
+
+    private synchronized void apply(int accountId, String security, long delta) {
+        long key = SecurityDictionary.key(accountId, securities.code(security));
+        long position = positions.get(key, 0);
+        positions.put(key, position + delta);
+        grossExposure.add(accountId, Math.abs(position + delta) - Math.abs(position));
+    }
+
+    private TradeRejection reject(TradeOrder order, RiskRule rule, long limit, String reason) {
+        rejected.get(rule).increment();
+        return new TradeRejection(order, rule.getKey(), limit, reason);
+    }
+
+    private long lastModified() {
+        try {
+            return limitsFile.lastModified();
+        } catch (IOException x) {
+            return limitsModified;
+        }
+    }
+
+    private static boolean complete(TradeOrder order) {
+        return order.getAccountId() != null && order.getSecurity() != null && order.getQuantity() != null
+                && order.getSide() != null;
+    }
+
+    private static long signed(TradeOrder order) {
+        return (order.getSide() == TradeSide.Buy ? 1L : -1L) * order.getQuantity();
+    }
+}
@@ -0,0 +1,115 @@
+package finos.traderx.tradeprocessor.risk;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import finos.traderx.tradeprocessor.collections.LongLongMap;
+import finos.traderx.tradeprocessor.collections.SecurityDictionary;
+
+/**
+ * An immutable set of limits, parsed from a document of the form
+ *
+ * <pre>
+ * {
+ *   "default":    { "maxOrderSize": 1000000 },
+ *   "accounts":   { "22214": { "maxLong": 50000, "maxShort": 50000, "maxGrossExposure": 200000 } },
+ *   "securities": { "IBM": { "maxOrderSize": 10000 } }
+ * }
+ * </pre>
+ *
+ * The limit that applies to an order is the tightest of the default, the
+ * account's and the security's; a limit that is not set anywhere is
+ * unlimited. Limits are held in flat long arrays indexed through primitive
+ * maps, so a check does not allocate.
+ */
+class RiskLimits {
+
+    static final long UNLIMITED = Long.MAX_VALUE;
+
+    private static final int RULES = RiskRule.values().length;
+
+    private final long[] defaults;
+    private final LongLongMap accountRows;
+    private final long[] accountLimits;
+    private final LongLongMap securityRows;
+    private final long[] securityLimits;
+
+    private RiskLimits(long[] defaults, LongLongMap accountRows, long[] accountLimits,
+            LongLongMap securityRows, long[] securityLimits) {
+        this.defaults = defaults;
+        this.accountRows = accountRows;
+        this.accountLimits = accountLimits;
+        this.securityRows = securityRows;
+        this.securityLimits = securityLimits;
+    }
+
+    static RiskLimits parse(JsonNode document, SecurityDictionary securities) {
+        long[] defaults = row(document.path("default"));
+
+        JsonNode accounts = document.path("accounts");
+        LongLongMap accountRows = new LongLongMap(accounts.size());
+        long[] accountLimits = new long[accounts.size() * RULES];
+        int n = 0;
+        for (Map.Entry<String, JsonNode> account : accounts.properties()) {
+            accountRows.put(Integer.parseInt(account.getKey()), n);
+            System.arraycopy(row(account.getValue()), 0, accountLimits, n++ * RULES, RULES);
+        }
+
+        JsonNode tickers = document.path("securities");
+        LongLongMap securityRows = new LongLongMap(tickers.size());
+        long[] securityLimits = new long[tickers.size() * RULES];
+        n = 0;
+        for (Map.Entry<String, JsonNode> security : tickers.properties()) {
+            securityRows.put(securities.code(security.getKey()), n);
+            System.arraycopy(row(security.getValue()), 0, securityLimits, n++ * RULES, RULES);
+        }
+        return new RiskLimits(defaults, accountRows, accountLimits, securityRows, securityLimits);
+    }
+
+    static RiskLimits none() {
+        long[] defaults = new long[RULES];
+        Arrays.fill(defaults, UNLIMITED);
+        return new RiskLimits(defaults, new LongLongMap(0), new long[0], new LongLongMap(0), new long[0]);
+    }
+
+    /**
+     * The tightest limit for the rule, given the account and security code.
+     * Pass a security code of 0 for account-wide rules.
+     */
+    long limit(RiskRule rule, int accountId, int securityCode) {
+        long limit = defaults[rule.ordinal()];
+        long row = accountRows.get(accountId, -1);
+        if (row >= 0) {
+            limit = Math.min(limit, accountLimits[(int) row * RULES + rule.ordinal()]);
+        }
+        if (securityCode != 0) {
+            row = securityRows.get(securityCode, -1);
+            if (row >= 0) {
+                limit = Math.min(limit, securityLimits[(int) row * RULES + rule.ordinal()]);
+            }
+        }
+        return limit;
+    }
+
+    int accounts() {
+        return accountRows.size();
+    }
+
+    int securities() {
+        return securityRows.size();
+    }
+
+    private static long[] row(JsonNode limits) {
+        long[] row = new long[RULES];
+        Arrays.fill(row, UNLIMITED);
+        for (Map.Entry<String, JsonNode> limit : limits.properties()) {
+            if (!limit.getValue().canConvertToLong() || limit.getValue().asLong() < 0) {
+                throw new IllegalArgumentException("Risk limit " + limit.getKey() + " must be a non-negative integer");
+            }
+            row[RiskRule.forKey(limit.getKey()).ordinal()] = limit.getValue().asLong();
+        }
+        return row;
+    }
+}
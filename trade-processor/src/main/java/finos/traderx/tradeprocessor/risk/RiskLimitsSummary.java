@@ -0,0 +1,34 @@
+package finos.traderx.tradeprocessor.risk;
+
+/**
+ * What a reload of the limits file picked up.
+ */
+public class RiskLimitsSummary {
+    private final String source;
+    private final int accounts;
+    private final int securities;
+
+    RiskLimitsSummary(String source, int accounts, int securities) {
+        this.source = source;
+        this.accounts = accounts;
+        this.securities = securities;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Accounts with their own limits.
+     */
+    public int getAccounts() {
+        return accounts;
+    }
+
+    /**
+     * Securities with their own limits.
+     */
+    public int getSecurities() {
+        return securities;
+    }
+}
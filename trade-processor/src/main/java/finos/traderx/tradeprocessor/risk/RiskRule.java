@@ -0,0 +1,38 @@
+package finos.traderx.tradeprocessor.risk;
+
+/**
+ * The limits checked before a trade is booked. Quantities are in shares;
+ * short limits are given as positive numbers.
+ */
+public enum RiskRule {
+    /** Largest quantity of a single order */
+    MAX_ORDER_SIZE("maxOrderSize"),
+    /** Largest long position in one security */
+    MAX_LONG("maxLong"),
+    /** Largest short position in one security */
+    MAX_SHORT("maxShort"),
+    /** Largest sum of absolute positions across all securities of an account */
+    MAX_GROSS_EXPOSURE("maxGrossExposure");
+
+    private final String key;
+
+    RiskRule(String key) {
+        this.key = key;
+    }
+
+    /**
+     * The name of the limit in the limits file.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    static RiskRule forKey(String key) {
+        for (RiskRule rule : values()) {
+            if (rule.key.equals(key)) {
+                return rule;
+            }
+        }
+        throw new IllegalArgumentException("Unknown risk limit " + key);
+    }
+}
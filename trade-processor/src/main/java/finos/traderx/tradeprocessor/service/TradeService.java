@@ -2,19 +2,33 @@ package finos.traderx.tradeprocessor.service;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
 import finos.traderx.messaging.PubSubException;
 import finos.traderx.messaging.Publisher;
+import finos.traderx.tradeprocessor.dedup.OrderDedupIndex;
+import finos.traderx.tradeprocessor.exceptions.ResourceNotFoundException;
+import finos.traderx.tradeprocessor.exceptions.TradeRejectedException;
+import finos.traderx.tradeprocessor.hotkeys.OrderHotKeys;
+import finos.traderx.tradeprocessor.id.TradeIdGenerator;
 import finos.traderx.tradeprocessor.model.*;
+import finos.traderx.tradeprocessor.pipeline.TradeStatePipeline;
 import finos.traderx.tradeprocessor.repository.*;
+import finos.traderx.tradeprocessor.risk.RiskEngine;
 
 @Service
 public class TradeService {
@@ -25,20 +39,280 @@ public class TradeService {
 	@Autowired
 	PositionRepository positionRepository;
 
+	@Autowired
+	TransactionTemplate transactionTemplate;
+
+	@Autowired
+	OrderDedupIndex orderDedupIndex;
+
+	@Autowired
+	TradeIdGenerator tradeIdGenerator;
+
+	@Autowired
+	TradeStatePipeline tradeStatePipeline;
+
+	@Autowired
+	RiskEngine riskEngine;
+
+	@Autowired
+	OrderHotKeys orderHotKeys;
+
 	
     @Autowired 
     private Publisher<Trade> tradePublisher;
     
     @Autowired
     private Publisher<Position> positionPublisher;
+
+    @Autowired
+    private Publisher<TradeRejection> rejectionPublisher;
     
+	/**
+	 * Books the order, unless an order with the same id has been booked
+	 * already, in which case the original booking is returned. The trade is
+	 * booked as New; processing and settlement happen asynchronously.
+	 *
+	 * @throws TradeRejectedException if the order breaches a risk limit
+	 */
 	public TradeBookingResult processTrade(TradeOrder order) {
 		log.info("Trade order received : "+order);
+		orderHotKeys.record(order.getAccountId(), order.getSecurity());
+		String orderId = order.getId();
+		boolean recorded = false;
+		if (orderId != null) {
+			recorded = orderDedupIndex.add(orderId);
+			if (!recorded) {
+				TradeBookingResult original = findBooking(orderId);
+				if (original != null) {
+					log.info("Order {} already booked as trade {}", orderId, original.getTrade().getId());
+					return original;
+				}
+			}
+		}
+		TradeRejection rejection = riskEngine.reserve(order);
+		if (rejection != null) {
+			if (recorded) {
+				orderDedupIndex.remove(orderId);
+			}
+			publishRejection(rejection);
+			throw new TradeRejectedException(rejection);
+		}
+		TradeBookingResult result;
+		try {
+			result = transactionTemplate.execute(status -> bookTrade(order));
+		} catch (DataIntegrityViolationException x) {
+			riskEngine.release(order);
+			// booked before the retention window of the dedup index
+			TradeBookingResult original = orderId == null ? null : findBooking(orderId);
+			if (original == null) {
+				throw x;
+			}
+			log.info("Order {} already booked as trade {}", orderId, original.getTrade().getId());
+			return original;
+		} catch (RuntimeException x) {
+			riskEngine.release(order);
+			if (recorded) {
+				orderDedupIndex.remove(orderId);
+			}
+			throw x;
+		}
+		log.info("Trade Processing complete : "+result);
+		try{
+			log.info("Publishing : "+result);
+			tradePublisher.publish("/accounts/"+order.getAccountId()+"/trades", result.getTrade());
+			positionPublisher.publish("/accounts/"+order.getAccountId()+"/positions", result.getPosition());
+		} catch (PubSubException exc){
+			log.error("Error publishing trade "+order,exc);
+		}
+		tradeStatePipeline.submit(result.getTrade());
+		
+		return result;	
+	}
+
+	private TradeBookingResult bookTrade(TradeOrder order) {
+        Trade t=newTrade(order);
+		log.info("Trade {}",t);
+		tradeRepository.save(t);
+		Map<PositionID, Integer> delta = Map.of(new PositionID(order.getAccountId(), order.getSecurity()), signedQuantity(order));
+		Position position=positionRepository.applyDeltas(delta, t.getUpdated()).get(0);
+		log.info("Position for "+order.getAccountId()+" "+order.getSecurity()+" is "+position);
+		return new TradeBookingResult(t, position);
+	}
+
+	private TradeBookingResult findBooking(String orderId) {
+		Trade trade = tradeRepository.findByOrderId(orderId);
+		if (trade == null) {
+			return null;
+		}
+		return new TradeBookingResult(trade, positionRepository.findByAccountIdAndSecurity(trade.getAccountId(), trade.getSecurity()));
+	}
+
+	/**
+	 * Books a list of orders in a single transaction. The quantities of all
+	 * orders on the same position are summed and applied in one atomic
+	 * increment, however many orders hit it. Orders whose id has been booked
+	 * before are not booked again; their original trade is returned in their
+	 * place. Orders that breach a risk limit are left out and reported in the
+	 * result's rejections.
+	 */
+	public TradeBatchBookingResult processTrades(List<TradeOrder> orders) {
+		log.info("Trade order batch received : {} orders", orders.size());
+		orders.forEach(order -> orderHotKeys.record(order.getAccountId(), order.getSecurity()));
+		BatchBooking batch = new BatchBooking();
+		TradeBatchBookingResult result;
+		try {
+			try {
+				result = transactionTemplate.execute(status -> bookTrades(orders, batch, false));
+			} catch (DataIntegrityViolationException x) {
+				// an order was booked before the retention window of the dedup index
+				log.info("Retrying trade order batch, checking every order id against booked trades");
+				batch.reset(riskEngine);
+				result = transactionTemplate.execute(status -> bookTrades(orders, batch, true));
+			}
+		} catch (RuntimeException x) {
+			batch.reset(riskEngine);
+			batch.recorded.forEach(orderDedupIndex::remove);
+			throw x;
+		}
+		log.info("Trade batch processing complete : {} trades, {} positions", result.getTrades().size(), result.getPositions().size());
+		// originals, and repeats of an order within the batch, were published when first booked
+		publish(batch.created, result.getPositions());
+		result.getRejections().forEach(this::publishRejection);
+		tradeStatePipeline.submit(batch.created);
+		return result;
+	}
+
+	private TradeBatchBookingResult bookTrades(List<TradeOrder> orders, BatchBooking batch, boolean checkAllOrderIds) {
+		List<Trade> trades = new ArrayList<>(orders.size());
+		Map<PositionID, Integer> deltas = new LinkedHashMap<>();
+		Map<String, Trade> booked = new HashMap<>();
+		if (checkAllOrderIds) {
+			List<String> orderIds = orders.stream().map(TradeOrder::getId).filter(Objects::nonNull).toList();
+			tradeRepository.findByOrderIdIn(orderIds).forEach(trade -> booked.put(trade.getOrderId(), trade));
+		}
+		for (TradeOrder order : orders) {
+			String orderId = order.getId();
+			if (orderId != null) {
+				// booked earlier in this batch, or found up front when checking all ids
+				Trade original = booked.get(orderId);
+				if (original == null && !batch.recorded.contains(orderId)) {
+					if (orderDedupIndex.add(orderId)) {
+						batch.recorded.add(orderId);
+					} else {
+						original = tradeRepository.findByOrderId(orderId);
+					}
+				}
+				if (original != null) {
+					log.info("Order {} already booked as trade {}", orderId, original.getId());
+					trades.add(original);
+					continue;
+				}
+			}
+			TradeRejection rejection = riskEngine.reserve(order);
+			if (rejection != null) {
+				log.info("Order {} rejected : {}", orderId, rejection.getReason());
+				if (orderId != null && batch.recorded.remove(orderId)) {
+					orderDedupIndex.remove(orderId);
+				}
+				batch.rejections.add(rejection);
+				continue;
+			}
+			batch.reserved.add(order);
+			Trade t = newTrade(order);
+			if (orderId != null) {
+				booked.put(orderId, t);
+			}
+			trades.add(t);
+			batch.created.add(t);
+
+			deltas.merge(new PositionID(order.getAccountId(), order.getSecurity()), signedQuantity(order), Integer::sum);
+		}
+		tradeRepository.saveAll(batch.created);
+		List<Position> positions = deltas.isEmpty() ? List.of() : positionRepository.applyDeltas(deltas, new Date());
+		return new TradeBatchBookingResult(trades, positions, new ArrayList<>(batch.rejections));
+	}
+
+	/**
+	 * Cancels the trade and takes its quantity back out of the position.
+	 * Cancelling a trade that is already cancelled changes nothing.
+	 */
+	public TradeBookingResult cancelTrade(String tradeId) {
+		log.info("Cancel requested for trade {}", tradeId);
+		boolean[] cancelled = { false };
+		TradeBookingResult result = transactionTemplate.execute(status -> {
+			Trade trade = tradeRepository.findForUpdateById(tradeId)
+					.orElseThrow(() -> new ResourceNotFoundException("Trade " + tradeId + " not found"));
+			if (trade.getState() == TradeState.Cancelled) {
+				return new TradeBookingResult(trade, positionRepository.findByAccountIdAndSecurity(trade.getAccountId(), trade.getSecurity()));
+			}
+			Date now = new Date();
+			trade.setState(TradeState.Cancelled);
+			trade.setUpdated(now);
+			Map<PositionID, Integer> delta = Map.of(new PositionID(trade.getAccountId(), trade.getSecurity()), -signedQuantity(trade));
+			cancelled[0] = true;
+			return new TradeBookingResult(trade, positionRepository.applyDeltas(delta, now).get(0));
+		});
+		if (cancelled[0]) {
+			riskEngine.reverse(result.getTrade());
+			publish(List.of(result.getTrade()), List.of(result.getPosition()));
+		}
+		return result;
+	}
+
+	/**
+	 * Cancels every trade of the account that is not cancelled yet, in one
+	 * transaction, with one position update per security.
+	 */
+	public TradeBatchBookingResult cancelTrades(Integer accountId) {
+		log.info("Cancel requested for all trades of account {}", accountId);
+		TradeBatchBookingResult result = transactionTemplate.execute(status -> {
+			List<Trade> trades = tradeRepository.findForUpdateByAccountIdAndStateNot(accountId, TradeState.Cancelled);
+			Map<PositionID, Integer> deltas = new LinkedHashMap<>();
+			Date now = new Date();
+			for (Trade trade : trades) {
+				trade.setState(TradeState.Cancelled);
+				trade.setUpdated(now);
+				deltas.merge(new PositionID(accountId, trade.getSecurity()), -signedQuantity(trade), Integer::sum);
+			}
+			List<Position> positions = deltas.isEmpty() ? List.of() : positionRepository.applyDeltas(deltas, now);
+			return new TradeBatchBookingResult(trades, positions, List.of());
+		});
+		log.info("Cancelled {} trades of account {}", result.getTrades().size(), accountId);
+		result.getTrades().forEach(riskEngine::reverse);
+		publish(result.getTrades(), result.getPositions());
+		return result;
+	}
+
+	private void publish(List<Trade> trades, List<Position> positions) {
+		for (Trade trade : trades) {
+			try {
+				tradePublisher.publish("/accounts/"+trade.getAccountId()+"/trades", trade);
+			} catch (PubSubException exc) {
+				log.error("Error publishing trade "+trade.getId(),exc);
+			}
+		}
+		for (Position position : positions) {
+			try {
+				positionPublisher.publish("/accounts/"+position.getAccountId()+"/positions", position);
+			} catch (PubSubException exc) {
+				log.error("Error publishing position "+position.getAccountId()+" "+position.getSecurity(),exc);
+			}
+		}
+	}
+
+	private void publishRejection(TradeRejection rejection) {
+		try {
+			rejectionPublisher.publish("/accounts/"+rejection.getAccountId()+"/rejects", rejection);
+		} catch (PubSubException exc) {
+			log.error("Error publishing rejection of order "+rejection.getOrderId(),exc);
+		}
+	}
+
+	private Trade newTrade(TradeOrder order) {
         Trade t=new Trade();
         t.setAccountId(order.getAccountId());
 
-		log.info("Setting a random TradeID");
-		t.setId(UUID.randomUUID().toString());
+		t.setId(tradeIdGenerator.nextId());
 
 
         t.setCreated(new Date());
@@ -46,42 +320,33 @@ public class TradeService {
         t.setSecurity(order.getSecurity());
         t.setSide(order.getSide());
         t.setQuantity(order.getQuantity());
+		t.setOrderId(order.getId());
 		t.setState(TradeState.New);
-		Position position=positionRepository.findByAccountIdAndSecurity(order.getAccountId(), order.getSecurity());
-		log.info("Position for "+order.getAccountId()+" "+order.getSecurity()+" is "+position);
-		if(position==null) {
-			log.info("Creating new position for "+order.getAccountId()+" "+order.getSecurity());
-			position=new Position();
-			position.setAccountId(order.getAccountId());
-			position.setSecurity(order.getSecurity());
-			position.setQuantity(0);
-		}
-		int newQuantity=((order.getSide()==TradeSide.Buy)?1:-1)*t.getQuantity();
-		position.setQuantity(position.getQuantity()+newQuantity);
-		log.info("Trade {}",t);
-		tradeRepository.save(t);
-		positionRepository.save(position);
-		// Simulate the handling of this trade...
-		// Now mark as processing
-		t.setUpdated(new Date());
-		t.setState(TradeState.Processing);
-		// Now mark as settled
-		t.setUpdated(new Date());
-		t.setState(TradeState.Settled);
-		tradeRepository.save(t);
-		
+		return t;
+	}
 
-		TradeBookingResult result=new TradeBookingResult(t, position);
-		log.info("Trade Processing complete : "+result);
-		try{
-			log.info("Publishing : "+result);
-			tradePublisher.publish("/accounts/"+order.getAccountId()+"/trades", result.getTrade());
-			positionPublisher.publish("/accounts/"+order.getAccountId()+"/positions", result.getPosition());
-		} catch (PubSubException exc){
-			log.error("Error publishing trade "+order,exc);
+	private int signedQuantity(TradeOrder order) {
+		return ((order.getSide()==TradeSide.Buy)?1:-1)*order.getQuantity();
+	}
+
+	private int signedQuantity(Trade trade) {
+		return ((trade.getSide()==TradeSide.Buy)?1:-1)*trade.getQuantity();
+	}
+
+	// What one attempt at booking a batch has done outside its transaction
+	private static class BatchBooking {
+		final Set<String> recorded = new HashSet<>();
+		final List<Trade> created = new ArrayList<>();
+		final List<TradeOrder> reserved = new ArrayList<>();
+		final List<TradeRejection> rejections = new ArrayList<>();
+
+		// Undoes the risk reservations of an attempt that did not commit
+		void reset(RiskEngine riskEngine) {
+			reserved.forEach(riskEngine::release);
+			reserved.clear();
+			created.clear();
+			rejections.clear();
 		}
-		
-		return result;	
 	}
 
 }
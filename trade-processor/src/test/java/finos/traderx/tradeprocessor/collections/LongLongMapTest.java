@@ -0,0 +1,73 @@
+package finos.traderx.tradeprocessor.collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The map keeps every entry through resizes and colliding keys, and adds
+ * deltas and whole maps into existing values.
+ */
+class LongLongMapTest {
+
+    @Test
+    void putReplacesAndGetFallsBackToMissing() {
+        LongLongMap map = new LongLongMap(4);
+        map.put(7, 70);
+        map.put(7, 71);
+
+        assertEquals(71, map.get(7, -1));
+        assertEquals(-1, map.get(8, -1));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void keepsEveryEntryAcrossResizes() {
+        LongLongMap map = new LongLongMap(1);
+        for (long key = -5_000; key < 5_000; key++) {
+            map.put(key << 32, key);
+        }
+
+        assertEquals(10_000, map.size());
+        for (long key = -5_000; key < 5_000; key++) {
+            assertEquals(key, map.get(key << 32, Long.MAX_VALUE));
+        }
+    }
+
+    @Test
+    void addSumsDeltasIntoTheValue() {
+        LongLongMap map = new LongLongMap(4);
+
+        assertEquals(5, map.add(1, 5));
+        assertEquals(2, map.add(1, -3));
+        assertEquals(-4, map.add(2, -4));
+        assertEquals(2, map.get(1, 0));
+    }
+
+    @Test
+    void addAllAndForEachCoverEveryEntry() {
+        LongLongMap map = new LongLongMap(4);
+        map.put(1, 10);
+        map.put(2, 20);
+        LongLongMap other = new LongLongMap(4);
+        other.put(2, 5);
+        other.put(3, 30);
+
+        map.addAll(other);
+        Map<Long, Long> entries = new HashMap<>();
+        map.forEach(entries::put);
+
+        assertEquals(Map.of(1L, 10L, 2L, 25L, 3L, 30L), entries);
+    }
+
+    @Test
+    void rejectsTheReservedKey() {
+        LongLongMap map = new LongLongMap(4);
+
+        assertThrows(IllegalArgumentException.class, () -> map.put(Long.MIN_VALUE, 1));
+    }
+}
@@ -0,0 +1,76 @@
+package finos.traderx.tradeprocessor.dedup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Fingerprints are duplicates until they expire or are removed, survive
+ * growth and colliding neighbours, and the table stops growing at its
+ * maximum by evicting the oldest entries.
+ */
+class FingerprintIndexTest {
+
+    @Test
+    void fingerprintIsADuplicateUntilItExpires() {
+        FingerprintIndex index = new FingerprintIndex(100);
+
+        assertTrue(index.add(42, 2_000, 1_000));
+        assertFalse(index.add(42, 3_000, 1_500));
+        assertTrue(index.add(42, 3_000, 2_000));
+    }
+
+    @Test
+    void removedFingerprintCanBeAddedAgain() {
+        FingerprintIndex index = new FingerprintIndex(100);
+        index.add(42, 2_000, 1_000);
+
+        index.remove(42, 1_000);
+
+        assertTrue(index.add(42, 2_000, 1_000));
+    }
+
+    @Test
+    void removalKeepsCollidingFingerprintsReachable() {
+        FingerprintIndex index = new FingerprintIndex(100);
+        // both hash to slot 0
+        long first = 1L | 1L << 32;
+        long second = 2L | 2L << 32;
+        index.add(first, 2_000, 1_000);
+        index.add(second, 2_000, 1_000);
+
+        index.remove(first, 1_000);
+
+        assertFalse(index.add(second, 2_000, 1_000));
+        assertTrue(index.add(first, 2_000, 1_000));
+    }
+
+    @Test
+    void growsWithoutLosingEntries() {
+        FingerprintIndex index = new FingerprintIndex(100_000);
+        for (long f = 1; f <= 10_000; f++) {
+            assertTrue(index.add(f * 0x9e3779b97f4a7c15L, 10_000, 0));
+        }
+
+        assertTrue(index.capacity() > 10_000);
+        for (long f = 1; f <= 10_000; f++) {
+            assertFalse(index.add(f * 0x9e3779b97f4a7c15L, 10_000, 0));
+        }
+    }
+
+    @Test
+    void evictsTheOldestOnceAtMaximumCapacity() {
+        FingerprintIndex index = new FingerprintIndex(1_000);
+        int capacity = 0;
+        for (long f = 1; f <= 20_000; f++) {
+            index.add(f * 0x9e3779b97f4a7c15L, 1_000_000 + f, 0);
+            capacity = Math.max(capacity, index.capacity());
+        }
+
+        assertEquals(2_048, capacity);
+        assertFalse(index.add(20_000 * 0x9e3779b97f4a7c15L, 2_000_000, 0));
+        assertTrue(index.add(0x9e3779b97f4a7c15L, 2_000_000, 0));
+    }
+}
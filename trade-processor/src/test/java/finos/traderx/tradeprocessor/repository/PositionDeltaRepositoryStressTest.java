@@ -0,0 +1,157 @@
+package finos.traderx.tradeprocessor.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.h2.tools.Server;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import finos.traderx.tradeprocessor.model.PositionID;
+
+/**
+ * Several trade-processor instances, each with its own connection pool and
+ * many booking threads, apply random position deltas through one H2 TCP
+ * server. No increment may be lost, and each position's Updated must end at
+ * the latest booking time applied to it, whatever order bookings commit in.
+ * Bookings that give up waiting for a lock roll back, as they would for a
+ * client, and are left out of the expected totals.
+ */
+class PositionDeltaRepositoryStressTest {
+
+    private static final int INSTANCES = 3;
+    private static final int THREADS_PER_INSTANCE = 16;
+    private static final int BOOKINGS_PER_THREAD = 150;
+    private static final int ACCOUNTS = 20;
+    private static final String[] SECURITIES = { "IBM", "MSFT", "C", "BAC", "GS" };
+
+    private Server server;
+    private final List<HikariDataSource> dataSources = new ArrayList<>();
+
+    @BeforeEach
+    void startDatabase() throws Exception {
+        server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        instance().getJdbcTemplate().execute("CREATE TABLE Positions ( AccountID INTEGER , Security VARCHAR(15) ,"
+                + " Updated TIMESTAMP, Quantity INTEGER, Version INTEGER DEFAULT 0 NOT NULL, Primary Key (AccountID, Security) )");
+    }
+
+    @AfterEach
+    void stopDatabase() {
+        dataSources.forEach(HikariDataSource::close);
+        server.stop();
+    }
+
+    @Test
+    void concurrentBookingsFromSeveralInstancesLoseNoUpdates() throws Exception {
+        Map<PositionID, LongAdder> expected = new ConcurrentHashMap<>();
+        Map<PositionID, AtomicLong> latest = new ConcurrentHashMap<>();
+        Map<PositionID, LongAdder> changes = new ConcurrentHashMap<>();
+        LongAdder committed = new LongAdder();
+        long start = System.currentTimeMillis();
+
+        ExecutorService executor = Executors.newFixedThreadPool(INSTANCES * THREADS_PER_INSTANCE);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < INSTANCES; i++) {
+            Instance instance = instance();
+            for (int t = 0; t < THREADS_PER_INSTANCE; t++) {
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int b = 0; b < BOOKINGS_PER_THREAD; b++) {
+                        // single orders and batches, with booking times out of commit order
+                        int size = random.nextInt(4) == 0 ? 1 + random.nextInt(30) : 1;
+                        Map<PositionID, Integer> deltas = new HashMap<>();
+                        for (int d = 0; d < size; d++) {
+                            PositionID id = new PositionID(1 + random.nextInt(ACCOUNTS), SECURITIES[random.nextInt(SECURITIES.length)]);
+                            deltas.merge(id, random.nextInt(-100, 101), Integer::sum);
+                        }
+                        long updated = start + random.nextInt(60_000);
+                        try {
+                            instance.transactions.executeWithoutResult(status -> instance.repository.applyDeltas(deltas, new Date(updated)));
+                        } catch (TransientDataAccessException x) {
+                            continue;
+                        }
+                        committed.increment();
+                        deltas.forEach((id, delta) -> {
+                            expected.computeIfAbsent(id, k -> new LongAdder()).add(delta);
+                            latest.computeIfAbsent(id, k -> new AtomicLong()).accumulateAndGet(updated, Math::max);
+                            changes.computeIfAbsent(id, k -> new LongAdder()).increment();
+                        });
+                    }
+                    return null;
+                }));
+            }
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(committed.sum() > INSTANCES * THREADS_PER_INSTANCE * BOOKINGS_PER_THREAD / 2,
+                "only " + committed.sum() + " bookings committed");
+
+        Map<PositionID, Long> quantities = new HashMap<>();
+        Map<PositionID, Long> updates = new HashMap<>();
+        Map<PositionID, Long> versions = new HashMap<>();
+        instance().getJdbcTemplate().query("SELECT AccountID, Security, Quantity, Updated, Version FROM Positions", rs -> {
+            PositionID id = new PositionID(rs.getInt(1), rs.getString(2));
+            quantities.put(id, rs.getLong(3));
+            updates.put(id, rs.getTimestamp(4).getTime());
+            versions.put(id, rs.getLong(5));
+        });
+        assertEquals(expected.size(), quantities.size());
+        expected.forEach((id, sum) -> {
+            assertEquals(sum.sum(), quantities.get(id), "quantity of " + id.getAccountId() + "/" + id.getSecurity());
+            assertEquals(new Timestamp(latest.get(id).get()).getTime(), updates.get(id),
+                    "updated of " + id.getAccountId() + "/" + id.getSecurity());
+            assertEquals(changes.get(id).sum(), versions.get(id), "version of " + id.getAccountId() + "/" + id.getSecurity());
+        });
+    }
+
+    private Instance instance() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:tcp://localhost:" + server.getPort()
+                + "/mem:stress;DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE");
+        dataSource.setUsername("sa");
+        dataSource.setPassword("sa");
+        dataSource.setMaximumPoolSize(10);
+        dataSources.add(dataSource);
+        return new Instance(dataSource);
+    }
+
+    private static class Instance {
+        final PositionDeltaRepositoryImpl repository = new PositionDeltaRepositoryImpl();
+        final TransactionTemplate transactions;
+        private final JdbcTemplate jdbcTemplate;
+
+        Instance(HikariDataSource dataSource) {
+            jdbcTemplate = new JdbcTemplate(dataSource);
+            ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+            transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        }
+
+        JdbcTemplate getJdbcTemplate() {
+            return jdbcTemplate;
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package finos.traderx.messaging.socketio;
 
 import java.net.URI;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.json.JSONObject;
 import org.slf4j.LoggerFactory;
@@ -21,6 +24,8 @@ import io.socket.emitter.Emitter;
  * Simple socketIO Subscriber, which uses 3 commands - 'subscribe',
  * 'unsubscribe', and 'publish' followed by payload
  * Publish events consist of an envelope and an internal payload.
+ * Subscribed topics are remembered and subscribed again whenever the socket
+ * (re)connects, since the feed forgets them with the old connection.
  */
 public abstract class SocketIOJSONSubscriber<T> implements Subscriber<T>, InitializingBean {
     private static ObjectMapper objectMapper = new ObjectMapper()
@@ -28,7 +33,9 @@ public abstract class SocketIOJSONSubscriber<T> implements Subscriber<T>, Initia
 
     public SocketIOJSONSubscriber(Class<T> typeClass) {
         JavaType type = objectMapper.getTypeFactory().constructParametricType(SocketIOEnvelope.class, typeClass );
+        JavaType listType = objectMapper.getTypeFactory().constructCollectionType(List.class, typeClass);
         this.envelopeType = type;
+        this.batchEnvelopeType = objectMapper.getTypeFactory().constructParametricType(SocketIOEnvelope.class, listType);
         this.objectType = typeClass;
     }
 
@@ -37,11 +44,12 @@ public abstract class SocketIOJSONSubscriber<T> implements Subscriber<T>, Initia
     }
 
     final JavaType envelopeType;
+    final JavaType batchEnvelopeType;
     final Class<T> objectType;
 
     org.slf4j.Logger log = LoggerFactory.getLogger(this.getClass().getName());
 
-    boolean connected = false;
+    volatile boolean connected = false;
 
     @Override
     public boolean isConnected() {
@@ -57,21 +65,44 @@ public abstract class SocketIOJSONSubscriber<T> implements Subscriber<T>, Initia
     }
 
     private String defaultTopic = "/default";
+    /**
+     * The topic subscribed on startup, or null to subscribe explicitly later.
+     */
     public void setDefaultTopic(String topic) {
         defaultTopic = topic;
     }
 
+    private final Set<String> topics = ConcurrentHashMap.newKeySet();
+
     public abstract void onMessage(Envelope<?> envelope, T message);
 
+    /**
+     * Called once the socket is connected and the topics have been
+     * (re)subscribed. Messages published while disconnected are lost.
+     */
+    protected void onConnected() {
+    }
+
+    /**
+     * Called when the socket disconnects or fails to connect.
+     */
+    protected void onDisconnected() {
+    }
+
     @Override
     public void subscribe(String topic) throws PubSubException {
         log.info("Subscribing to " + topic);
-        socket.emit("subscribe", topic);
+        if (topics.add(topic) && isConnected()) {
+            socket.emit("subscribe", topic);
+        }
     }
 
     @Override
     public void unsubscribe(String topic) throws PubSubException {
-        socket.emit("unsubscribe", "topic");
+        log.info("Unsubscribing from " + topic);
+        if (topics.remove(topic) && isConnected()) {
+            socket.emit("unsubscribe", topic);
+        }
     }
 
     @Override
@@ -99,6 +130,10 @@ public abstract class SocketIOJSONSubscriber<T> implements Subscriber<T>, Initia
             public void call(Object... args) {
                 SocketIOJSONSubscriber.this.connected = true;
                 log.info("Socket Connected");
+                for (String topic : topics) {
+                    s.emit("subscribe", topic);
+                }
+                onConnected();
             }
         });
 
@@ -107,6 +142,7 @@ public abstract class SocketIOJSONSubscriber<T> implements Subscriber<T>, Initia
             public void call(Object... args) {
                 SocketIOJSONSubscriber.this.connected = false;
                 log.info("Socket Disconnected");
+                onDisconnected();
             }
         });
 
@@ -115,6 +151,7 @@ public abstract class SocketIOJSONSubscriber<T> implements Subscriber<T>, Initia
             public void call(Object... args) {
                 SocketIOJSONSubscriber.this.connected = false;
                 log.info("Connection Error");
+                onDisconnected();
             }
         });
 
@@ -124,12 +161,19 @@ public abstract class SocketIOJSONSubscriber<T> implements Subscriber<T>, Initia
                 try {
                     JSONObject json = (JSONObject) args[0]; 
                     log.info("Raw Payload " + args[0].toString());
-                    if(! objectType.getSimpleName().equals(json.get("type"))){
-                        log.info("System Message>>>>> " + args[0].toString());
-                    } else {
+                    Object type = json.opt("type");
+                    if (objectType.getSimpleName().equals(type)) {
                         SocketIOEnvelope<T> envelope = (SocketIOEnvelope<T>) objectMapper.readValue(json.toString(),  envelopeType);
                         log.info("Incoming Payload: " + envelope.getPayload());
                         SocketIOJSONSubscriber.this.onMessage(envelope, envelope.getPayload());
+                    } else if ((objectType.getSimpleName() + SocketIOEnvelope.BATCH_TYPE_SUFFIX).equals(type)) {
+                        SocketIOEnvelope<List<T>> envelope = (SocketIOEnvelope<List<T>>) objectMapper.readValue(json.toString(), batchEnvelopeType);
+                        log.info("Incoming Batch of {} payloads", envelope.getPayload().size());
+                        for (T message : envelope.getPayload()) {
+                            SocketIOJSONSubscriber.this.onMessage(envelope, message);
+                        }
+                    } else {
+                        log.info("System Message>>>>> " + args[0].toString());
                     }
 
                    
@@ -146,6 +190,8 @@ public abstract class SocketIOJSONSubscriber<T> implements Subscriber<T>, Initia
     @Override
     public void afterPropertiesSet() throws Exception {
         connect();
-        subscribe(defaultTopic);
+        if (defaultTopic != null) {
+            subscribe(defaultTopic);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package finos.traderx.tradeservice;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import finos.traderx.tradeservice.admission.AdaptiveConcurrencyLimiter;
+import finos.traderx.tradeservice.admission.AdmissionInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+public class AdmissionConfig implements WebMvcConfigurer {
+
+    @Value("${admission.enabled:true}")
+    private boolean enabled;
+
+    @Autowired
+    private AdaptiveConcurrencyLimiter orderAdmission;
+
+    @Bean
+    public static AdaptiveConcurrencyLimiter orderAdmission(MeterRegistry registry,
+            @Value("${admission.limit.initial:20}") int initialLimit,
+            @Value("${admission.limit.min:4}") int minLimit,
+            @Value("${admission.limit.max:500}") int maxLimit,
+            @Value("${admission.limit.smoothing:0.2}") double smoothing) {
+        return new AdaptiveConcurrencyLimiter("trade-order", initialLimit, minLimit, maxLimit, smoothing, registry);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (enabled) {
+            registry.addInterceptor(new AdmissionInterceptor(orderAdmission)).addPathPatterns("/trade/");
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package finos.traderx.tradeservice;
+
+import java.util.Set;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import finos.traderx.tradeservice.concurrent.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+public class LookupConfig {
+
+    @Bean
+    public SingleFlight<String, Boolean> tickerLookups(MeterRegistry registry) {
+        return new SingleFlight<>("reference-data.ticker", registry);
+    }
+
+    @Bean
+    public SingleFlight<Integer, Boolean> accountLookups(MeterRegistry registry) {
+        return new SingleFlight<>("account.id", registry);
+    }
+
+    @Bean
+    public SingleFlight<String, Set<String>> tickerListings(MeterRegistry registry) {
+        return new SingleFlight<>("reference-data.stocks", registry);
+    }
+
+    @Bean
+    public SingleFlight<String, Set<Integer>> accountListings(MeterRegistry registry) {
+        return new SingleFlight<>("account.all", registry);
+    }
+}
@@ -0,0 +1,50 @@
+package finos.traderx.tradeservice.admission;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Admits requests through an {@link AdaptiveConcurrencyLimiter}, answering
+ * 503 with a Retry-After hint when the limit is reached.
+ */
+public class AdmissionInterceptor implements HandlerInterceptor {
+
+    private static final String PERMIT = AdmissionInterceptor.class.getName() + ".permit";
+
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public AdmissionInterceptor(AdaptiveConcurrencyLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws Exception {
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+        if (permit == null) {
+            long retryAfterMillis = limiter.retryAfterMillis();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", String.valueOf((retryAfterMillis + 999) / 1000));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"Too many requests in flight, limit " + limiter.getLimit()
+                    + "\",\"retryAfterMillis\":" + retryAfterMillis + "}");
+            return false;
+        }
+        request.setAttribute(PERMIT, permit);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        Object permit = request.getAttribute(PERMIT);
+        if (permit instanceof AdaptiveConcurrencyLimiter.Permit p) {
+            request.removeAttribute(PERMIT);
+            p.release(ex != null || response.getStatus() >= 500);
+        }
+    }
+}
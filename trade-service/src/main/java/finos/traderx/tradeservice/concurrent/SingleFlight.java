@@ -0,0 +1,88 @@
+package finos.traderx.tradeservice.concurrent;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Coalesces concurrent calls for the same key into a single in-flight call.
+ * The first caller for a key executes the lookup, every caller arriving while
+ * it is running waits for and shares that result (or exception). Nothing is
+ * cached once the call completes.
+ *
+ * Reports 'singleflight.calls' tagged with outcome=executed|coalesced, so the
+ * coalescing ratio is coalesced / (executed + coalesced).
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter executed;
+    private final Counter coalesced;
+
+    public SingleFlight(String name, MeterRegistry registry) {
+        this.executed = Counter.builder("singleflight.calls")
+                .description("Lookups grouped by whether they ran or joined an in-flight call")
+                .tag("name", name).tag("outcome", "executed")
+                .register(registry);
+        this.coalesced = Counter.builder("singleflight.calls")
+                .description("Lookups grouped by whether they ran or joined an in-flight call")
+                .tag("name", name).tag("outcome", "coalesced")
+                .register(registry);
+        Gauge.builder("singleflight.inflight", inFlight, ConcurrentHashMap::size)
+                .description("Distinct keys currently being looked up")
+                .tag("name", name)
+                .register(registry);
+    }
+
+    /**
+     * Runs the call, or joins the one in flight for the same key. A null key
+     * cannot be shared and runs the call on its own.
+     */
+    public V execute(K key, Supplier<V> call) {
+        if (key == null) {
+            executed.increment();
+            return call.get();
+        }
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+        executed.increment();
+        try {
+            V value = call.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error x) {
+            mine.completeExceptionally(x);
+            throw x;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private V await(CompletableFuture<V> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for in-flight lookup");
+        } catch (ExecutionException x) {
+            Throwable cause = x.getCause();
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            if (cause instanceof Error e) {
+                throw e;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
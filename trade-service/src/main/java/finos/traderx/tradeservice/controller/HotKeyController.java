@@ -0,0 +1,45 @@
+package finos.traderx.tradeservice.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import finos.traderx.tradeservice.hotkeys.HotKeyTracker;
+import finos.traderx.tradeservice.hotkeys.OrderHotKeys;
+import io.swagger.v3.oas.annotations.Operation;
+
+@CrossOrigin("*")
+@RestController
+@RequestMapping(value="/hotkeys", produces = "application/json")
+public class HotKeyController {
+
+	@Autowired
+	private OrderHotKeys orderHotKeys;
+
+	@Value("${hotkeys.capacity:64}")
+	private int capacity;
+
+	@Operation(description = "The accounts submitting the most orders over the hot key window, with estimated counts")
+	@GetMapping("/accounts")
+	public ResponseEntity<?> getHotAccounts(@RequestParam(defaultValue = "10") int n) {
+		return top(orderHotKeys.getAccounts(), n);
+	}
+
+	@Operation(description = "The securities with the most orders over the hot key window, with estimated counts")
+	@GetMapping("/securities")
+	public ResponseEntity<?> getHotSecurities(@RequestParam(defaultValue = "10") int n) {
+		return top(orderHotKeys.getSecurities(), n);
+	}
+
+	private ResponseEntity<?> top(HotKeyTracker tracker, int n) {
+		if (n <= 0) {
+			return ResponseEntity.badRequest().body("n must be positive");
+		}
+		return ResponseEntity.ok(tracker.top(Math.min(n, capacity)));
+	}
+}
@@ -1,24 +1,27 @@
 package finos.traderx.tradeservice.controller;
 
+import java.io.InputStream;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import finos.traderx.messaging.PubSubException;
 import finos.traderx.messaging.Publisher;
 import finos.traderx.tradeservice.exceptions.ResourceNotFoundException;
-import finos.traderx.tradeservice.model.Account;
-import finos.traderx.tradeservice.model.Security;
+import finos.traderx.tradeservice.hotkeys.OrderHotKeys;
 import finos.traderx.tradeservice.model.TradeOrder;
+import finos.traderx.tradeservice.service.TradeOrderBatchService;
+import finos.traderx.tradeservice.service.TradeOrderValidator;
+import finos.traderx.tradeservice.service.TradePartitioner;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 
@@ -31,25 +34,30 @@ public class TradeOrderController {
 
 	@Autowired
 	private Publisher<TradeOrder> tradePublisher;
-	
-	private RestTemplate restTemplate = new RestTemplate();
 
-	@Value("${reference.data.service.url}")
-	private String referenceDataServiceAddress;
+	@Autowired
+	private TradeOrderValidator validator;
+
+	@Autowired
+	private TradeOrderBatchService batchService;
+
+	@Autowired
+	private TradePartitioner partitioner;
 
-	@Value("${account.service.url}")
-	private String accountServiceAddress;
+	@Autowired
+	private OrderHotKeys orderHotKeys;
 
 	@Operation(description = "Submit a new trade order")
 	@PostMapping("/")
 	public ResponseEntity<TradeOrder> createTradeOrder(@Parameter(description = "the intendeded trade order") @RequestBody TradeOrder tradeOrder) {
 		log.info("Called createTradeOrder");
+		orderHotKeys.record(tradeOrder.getAccountId(), tradeOrder.getSecurity());
 		
-		if (!validateTicker(tradeOrder.getSecurity())) 
+		if (!validator.validateTicker(tradeOrder.getSecurity())) 
 		{
 			throw new ResourceNotFoundException(tradeOrder.getSecurity() + " not found in Reference data service.");
 		}
-		else if(!validateAccount(tradeOrder.getAccountId()))
+		else if(!validator.validateAccount(tradeOrder.getAccountId()))
 		{
 			throw new ResourceNotFoundException(tradeOrder.getAccountId() + " not found in Account service.");
 		}
@@ -57,7 +65,7 @@ public class TradeOrderController {
 		{
 			try{
 				log.info("Trade is valid. Submitting {}", tradeOrder);
-				tradePublisher.publish("/trades",tradeOrder);
+				tradePublisher.publish(partitioner.topic(tradeOrder.getAccountId()),tradeOrder);
 				return  ResponseEntity.ok(tradeOrder);
 			}  catch (PubSubException e){
 				throw new RuntimeException("Failed to publish trade order", e);
@@ -65,51 +73,13 @@ public class TradeOrderController {
 		}
 	}
 
-	private boolean validateTicker(String ticker)
-	{
-		// Move whole method to a sperate class that handles all reference data 
-		// so we can mock it and run without this service up.
-		String url = this.referenceDataServiceAddress + "//stocks/" + ticker;
-		ResponseEntity<Security> response = null;
-
-		try {
-			response = this.restTemplate.getForEntity(url, Security.class);
-			log.info("Validate ticker " + response.getBody().toString());
-			return true;
-		}
-		catch (HttpClientErrorException ex) {
-			if (ex.getRawStatusCode() == 404) {
-				log.info(ticker + " not found in reference data service.");
-			}
-			else {
-				log.error(ex.getMessage());
-			}
-			return false;
-		}
-	}		
-	
-	private boolean validateAccount(Integer id)
-	{
-		// Move whole method to a sperate class that handles all accounts 
-		// so we can mock it and run without this service up.
-
-		String url = this.accountServiceAddress + "//account/" + id;
-		ResponseEntity<Account> response = null;
-
-		try 
-		{
-				response = this.restTemplate.getForEntity(url, Account.class);
-				log.info("Validate account " + response.getBody().toString());
-				return true;
-		}
-		catch (HttpClientErrorException ex) {
-			if (ex.getRawStatusCode() == 404) {
-				log.info("Account" + id + " not found in account service.");				
-			}
-			else {
-				log.error(ex.getMessage());
-			}
-			return false;
-		}
+	@Operation(description = "Submit a basket of trade orders as a JSON array or NDJSON stream. "
+			+ "Returns one accept/reject result per order, as NDJSON in submission order")
+	@PostMapping(value = "/batch", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE },
+			produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> createTradeOrderBatch(@Parameter(description = "the intended trade orders") InputStream orders) {
+		log.info("Called createTradeOrderBatch");
+		StreamingResponseBody body = out -> batchService.process(orders, out);
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package finos.traderx.tradeservice.hotkeys;
+
+import java.util.Arrays;
+
+/**
+ * Count-Min sketch: approximate counts of any number of keys in fixed
+ * memory. Each key adds to one counter per row and its estimate is the
+ * smallest of them, which never undercounts and overcounts by at most
+ * total * e / width with probability 1 - e^-depth.
+ *
+ * Not thread safe; callers synchronize.
+ */
+class CountMinSketch {
+
+    private final int depth;
+    private final int mask;
+    private final long[] counts;
+
+    /**
+     * @param width counters per row, rounded up to a power of two
+     */
+    CountMinSketch(int depth, int width) {
+        this.depth = depth;
+        int rowWidth = Integer.highestOneBit(Math.max(2, width) - 1) << 1;
+        this.mask = rowWidth - 1;
+        this.counts = new long[depth * rowWidth];
+    }
+
+    void add(long hash) {
+        for (int row = 0; row < depth; row++) {
+            counts[index(row, hash)]++;
+        }
+    }
+
+    long estimate(long hash) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counts[index(row, hash)]);
+        }
+        return estimate;
+    }
+
+    void clear() {
+        Arrays.fill(counts, 0);
+    }
+
+    // one hash per row from the two halves of the key's hash
+    private int index(int row, long hash) {
+        int h = (int) hash + row * (int) (hash >>> 32);
+        return row * (mask + 1) + ((h ^ (h >>> 16)) & mask);
+    }
+}
@@ -0,0 +1,29 @@
+package finos.traderx.tradeservice.hotkeys;
+
+/**
+ * A key's estimated number of occurrences over the window, and its share of
+ * all occurrences.
+ */
+public class HotKey {
+    private final String key;
+    private final long count;
+    private final double share;
+
+    HotKey(String key, long count, double share) {
+        this.key = key;
+        this.count = count;
+        this.share = share;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getShare() {
+        return share;
+    }
+}
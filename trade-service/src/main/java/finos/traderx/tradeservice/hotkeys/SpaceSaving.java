@@ -0,0 +1,104 @@
+package finos.traderx.tradeservice.hotkeys;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Space-Saving summary: counts for at most capacity keys. A new key replaces
+ * the one with the smallest count and inherits that count, so every key
+ * occurring more than total / capacity times is held, and counts overstate
+ * by at most the count inherited.
+ *
+ * The counts are kept in a min-heap, so the smallest is found at the root
+ * and a count changed in O(log capacity).
+ *
+ * Not thread safe; callers lock.
+ */
+class SpaceSaving {
+
+    private final String[] keys;
+    private final long[] counts;
+    // heap position of each key
+    private final Map<String, Integer> index;
+    private int size;
+
+    SpaceSaving(int capacity) {
+        this.keys = new String[capacity];
+        this.counts = new long[capacity];
+        this.index = new HashMap<>(capacity * 2);
+    }
+
+    void add(String key) {
+        Integer at = index.get(key);
+        if (at != null) {
+            counts[at]++;
+            siftDown(at);
+            return;
+        }
+        if (size < keys.length) {
+            keys[size] = key;
+            counts[size] = 1;
+            index.put(key, size);
+            siftUp(size++);
+            return;
+        }
+        index.remove(keys[0]);
+        keys[0] = key;
+        counts[0]++;
+        index.put(key, 0);
+        siftDown(0);
+    }
+
+    Set<String> keys() {
+        return index.keySet();
+    }
+
+    void clear() {
+        index.clear();
+        Arrays.fill(keys, 0, size, null);
+        size = 0;
+    }
+
+    private void siftUp(int at) {
+        while (at > 0) {
+            int parent = (at - 1) / 2;
+            if (counts[parent] <= counts[at]) {
+                return;
+            }
+            swap(at, parent);
+            at = parent;
+        }
+    }
+
+    private void siftDown(int at) {
+        while (true) {
+            int smallest = at;
+            int left = 2 * at + 1;
+            int right = left + 1;
+            if (left < size && counts[left] < counts[smallest]) {
+                smallest = left;
+            }
+            if (right < size && counts[right] < counts[smallest]) {
+                smallest = right;
+            }
+            if (smallest == at) {
+                return;
+            }
+            swap(at, smallest);
+            at = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        String key = keys[a];
+        long count = counts[a];
+        keys[a] = keys[b];
+        counts[a] = counts[b];
+        keys[b] = key;
+        counts[b] = count;
+        index.put(keys[a], a);
+        index.put(keys[b], b);
+    }
+}
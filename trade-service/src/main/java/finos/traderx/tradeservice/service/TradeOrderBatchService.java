@@ -0,0 +1,175 @@
+package finos.traderx.tradeservice.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import finos.traderx.messaging.PubSubException;
+import finos.traderx.messaging.Publisher;
+import finos.traderx.tradeservice.hotkeys.OrderHotKeys;
+import finos.traderx.tradeservice.model.TradeOrder;
+import finos.traderx.tradeservice.model.TradeResponse;
+
+/**
+ * Validates and publishes a basket of trade orders read from a JSON array or
+ * an NDJSON stream. Orders are handled in fixed size chunks and one
+ * {@link TradeResponse} per order is written back as NDJSON, in input order,
+ * so memory use does not grow with the size of the basket.
+ */
+@Service
+public class TradeOrderBatchService {
+
+	private static final Logger log = LoggerFactory.getLogger(TradeOrderBatchService.class);
+
+	@Autowired
+	private Publisher<TradeOrder> tradePublisher;
+
+	@Autowired
+	private TradeOrderValidator validator;
+
+	@Autowired
+	private TradePartitioner partitioner;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private OrderHotKeys orderHotKeys;
+
+	@Value("${trade.batch.chunk-size:500}")
+	private int chunkSize;
+
+	public void process(InputStream in, OutputStream out) throws IOException {
+		BatchContext context = new BatchContext();
+		List<TradeOrder> chunk = new ArrayList<>(chunkSize);
+		try (MappingIterator<TradeOrder> orders = objectMapper.readerFor(TradeOrder.class).readValues(in)) {
+			while (orders.hasNextValue()) {
+				chunk.add(orders.nextValue());
+				if (chunk.size() == chunkSize) {
+					processChunk(chunk, context, out);
+					chunk.clear();
+				}
+			}
+		} catch (JsonProcessingException x) {
+			processChunk(chunk, context, out);
+			chunk.clear();
+			log.warn("Stopped reading trade order batch: {}", x.getOriginalMessage());
+			write(out, TradeResponse.error("Malformed trade order: " + x.getOriginalMessage()));
+		}
+		processChunk(chunk, context, out);
+		log.info("Processed trade order batch: {} accepted, {} rejected", context.accepted, context.rejected);
+	}
+
+	private void processChunk(List<TradeOrder> chunk, BatchContext context, OutputStream out) throws IOException {
+		if (chunk.isEmpty()) {
+			return;
+		}
+		TradeResponse[] results = new TradeResponse[chunk.size()];
+		List<TradeOrder> accepted = new ArrayList<>(chunk.size());
+		for (int i = 0; i < chunk.size(); i++) {
+			TradeOrder order = chunk.get(i);
+			orderHotKeys.record(order.getAccountId(), order.getSecurity());
+			String error = validate(order, context);
+			if (error == null) {
+				accepted.add(order);
+				results[i] = TradeResponse.success(order.getId());
+			} else {
+				results[i] = rejected(order, error);
+			}
+		}
+
+		if (!accepted.isEmpty()) {
+			// one frame for the chunk, one batch per partition topic, orders kept in input order
+			Map<String, List<TradeOrder>> byTopic = new LinkedHashMap<>();
+			for (TradeOrder order : accepted) {
+				byTopic.computeIfAbsent(partitioner.topic(order.getAccountId()), topic -> new ArrayList<>()).add(order);
+			}
+			try {
+				tradePublisher.publishBatch(byTopic);
+			} catch (PubSubException e) {
+				log.error("Failed to publish batch of {} trade orders", accepted.size(), e);
+				for (int i = 0; i < results.length; i++) {
+					if (results[i].isSuccess()) {
+						results[i] = rejected(chunk.get(i), "Failed to publish trade order");
+					}
+				}
+			}
+		}
+
+		for (TradeResponse result : results) {
+			if (result.isSuccess()) {
+				context.accepted++;
+			} else {
+				context.rejected++;
+			}
+			write(out, result);
+		}
+		out.flush();
+	}
+
+	private String validate(TradeOrder order, BatchContext context) {
+		if (order.getSecurity() == null || order.getAccountId() == null || order.getSide() == null
+				|| order.getQuantity() == null || order.getQuantity() <= 0) {
+			return "Trade order is missing security, account, side or a positive quantity";
+		}
+		if (!context.tickers.computeIfAbsent(order.getSecurity(), ticker -> isKnownTicker(ticker, context))) {
+			return order.getSecurity() + " not found in Reference data service.";
+		}
+		if (!context.accounts.computeIfAbsent(order.getAccountId(), id -> isKnownAccount(id, context))) {
+			return order.getAccountId() + " not found in Account service.";
+		}
+		return null;
+	}
+
+	// The bulk listings are fetched once per batch; anything missing from them
+	// is re-checked individually in case it was created after the listing.
+	private boolean isKnownTicker(String ticker, BatchContext context) {
+		if (context.knownTickers == null) {
+			context.knownTickers = validator.knownTickers();
+		}
+		return context.knownTickers.contains(ticker) || validator.validateTicker(ticker);
+	}
+
+	private boolean isKnownAccount(Integer id, BatchContext context) {
+		if (context.knownAccounts == null) {
+			context.knownAccounts = validator.knownAccounts();
+		}
+		return context.knownAccounts.contains(id) || validator.validateAccount(id);
+	}
+
+	private TradeResponse rejected(TradeOrder order, String message) {
+		TradeResponse response = TradeResponse.error(message);
+		response.setId(order.getId());
+		return response;
+	}
+
+	private void write(OutputStream out, TradeResponse result) throws IOException {
+		out.write(objectMapper.writeValueAsBytes(result));
+		out.write('\n');
+	}
+
+	private static class BatchContext {
+		Set<String> knownTickers;
+		Set<Integer> knownAccounts;
+		final Map<String, Boolean> tickers = new HashMap<>();
+		final Map<Integer, Boolean> accounts = new HashMap<>();
+		long accepted;
+		long rejected;
+	}
+}
@@ -0,0 +1,144 @@
+package finos.traderx.tradeservice.service;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import finos.traderx.tradeservice.concurrent.SingleFlight;
+import finos.traderx.tradeservice.model.Account;
+import finos.traderx.tradeservice.model.Security;
+
+/**
+ * Validates tickers and accounts against the reference data and account
+ * services. Single lookups are coalesced per key; bulk lookups fetch the full
+ * listing once for all concurrent callers.
+ */
+@Service
+public class TradeOrderValidator {
+
+	private static final Logger log = LoggerFactory.getLogger(TradeOrderValidator.class);
+
+	private static final String ALL = "*";
+
+	@Autowired
+	private SingleFlight<String, Boolean> tickerLookups;
+
+	@Autowired
+	private SingleFlight<Integer, Boolean> accountLookups;
+
+	@Autowired
+	private SingleFlight<String, Set<String>> tickerListings;
+
+	@Autowired
+	private SingleFlight<String, Set<Integer>> accountListings;
+
+	private RestTemplate restTemplate = new RestTemplate();
+
+	@Value("${reference.data.service.url}")
+	private String referenceDataServiceAddress;
+
+	@Value("${account.service.url}")
+	private String accountServiceAddress;
+
+	public boolean validateTicker(String ticker) {
+		if (ticker == null) {
+			return false;
+		}
+		return tickerLookups.execute(ticker, () -> lookupTicker(ticker));
+	}
+
+	public boolean validateAccount(Integer id) {
+		if (id == null) {
+			return false;
+		}
+		return accountLookups.execute(id, () -> lookupAccount(id));
+	}
+
+	/**
+	 * All tickers currently known to the reference data service.
+	 */
+	public Set<String> knownTickers() {
+		return tickerListings.execute(ALL, this::listTickers);
+	}
+
+	/**
+	 * All account ids currently known to the account service.
+	 */
+	public Set<Integer> knownAccounts() {
+		return accountListings.execute(ALL, this::listAccounts);
+	}
+
+	private boolean lookupTicker(String ticker) {
+		String url = this.referenceDataServiceAddress + "//stocks/" + ticker;
+		ResponseEntity<Security> response = null;
+
+		try {
+			response = this.restTemplate.getForEntity(url, Security.class);
+			log.info("Validate ticker " + response.getBody().toString());
+			return true;
+		}
+		catch (HttpClientErrorException ex) {
+			if (ex.getRawStatusCode() == 404) {
+				log.info(ticker + " not found in reference data service.");
+			}
+			else {
+				log.error(ex.getMessage());
+			}
+			return false;
+		}
+	}
+
+	private boolean lookupAccount(Integer id) {
+		String url = this.accountServiceAddress + "//account/" + id;
+		ResponseEntity<Account> response = null;
+
+		try {
+			response = this.restTemplate.getForEntity(url, Account.class);
+			log.info("Validate account " + response.getBody().toString());
+			return true;
+		}
+		catch (HttpClientErrorException ex) {
+			if (ex.getRawStatusCode() == 404) {
+				log.info("Account" + id + " not found in account service.");
+			}
+			else {
+				log.error(ex.getMessage());
+			}
+			return false;
+		}
+	}
+
+	private Set<String> listTickers() {
+		String url = this.referenceDataServiceAddress + "//stocks";
+		Security[] securities = this.restTemplate.getForObject(url, Security[].class);
+		Set<String> tickers = new HashSet<>();
+		if (securities != null) {
+			for (Security security : securities) {
+				tickers.add(security.getTicker());
+			}
+		}
+		log.info("Loaded {} tickers from reference data service", tickers.size());
+		return tickers;
+	}
+
+	private Set<Integer> listAccounts() {
+		String url = this.accountServiceAddress + "//account/";
+		Account[] accounts = this.restTemplate.getForObject(url, Account[].class);
+		Set<Integer> ids = new HashSet<>();
+		if (accounts != null) {
+			for (Account account : accounts) {
+				ids.add(account.getid());
+			}
+		}
+		log.info("Loaded {} accounts from account service", ids.size());
+		return ids;
+	}
+}
@@ -0,0 +1,32 @@
+package finos.traderx.tradeservice.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps an account to the partition its orders are published on. All orders
+ * of an account go to the same /trades/{partition} topic, so they are booked
+ * in order by whichever processor owns that partition. The partition count
+ * must match trade.partitions on the trade-processor.
+ */
+@Component
+public class TradePartitioner {
+
+	@Value("${trade.partitions:8}")
+	private int partitions;
+
+	public int partition(Integer accountId) {
+		// MurmurHash3 fmix32, so consecutive account ids spread evenly
+		int h = accountId == null ? 0 : accountId;
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return Math.floorMod(h, partitions);
+	}
+
+	public String topic(Integer accountId) {
+		return "/trades/" + partition(accountId);
+	}
+}
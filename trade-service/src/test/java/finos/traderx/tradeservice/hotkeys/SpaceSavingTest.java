@@ -0,0 +1,88 @@
+package finos.traderx.tradeservice.hotkeys;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The summary holds at most its capacity of keys, a new key evicts the one
+ * with the smallest count, and keys occurring more than total / capacity
+ * times are never lost among many cold ones.
+ */
+class SpaceSavingTest {
+
+    @Test
+    void holdsEveryKeyUpToCapacity() {
+        SpaceSaving summary = new SpaceSaving(3);
+        summary.add("a");
+        summary.add("b");
+        summary.add("a");
+        summary.add("c");
+
+        assertEquals(Set.of("a", "b", "c"), summary.keys());
+    }
+
+    @Test
+    void newKeyEvictsTheSmallestCount() {
+        SpaceSaving summary = new SpaceSaving(3);
+        add(summary, "a", 5);
+        add(summary, "b", 3);
+        add(summary, "c", 1);
+
+        summary.add("d");
+        assertEquals(Set.of("a", "b", "d"), summary.keys());
+
+        // d inherited c's count, so it now has 2 and is the next to go
+        summary.add("e");
+        assertEquals(Set.of("a", "b", "e"), summary.keys());
+    }
+
+    @Test
+    void countsKeepGrowingAfterAKeyIsHeld() {
+        SpaceSaving summary = new SpaceSaving(2);
+        add(summary, "a", 1);
+        add(summary, "b", 1);
+        add(summary, "a", 3);
+
+        summary.add("c");
+        assertEquals(Set.of("a", "c"), summary.keys());
+    }
+
+    @Test
+    void frequentKeysSurviveManyColdOnes() {
+        SpaceSaving summary = new SpaceSaving(10);
+        for (int i = 0; i < 10_000; i++) {
+            if (i % 5 == 0) {
+                summary.add("hot1");
+            } else if (i % 5 == 1) {
+                summary.add("hot2");
+            } else {
+                summary.add("cold" + i);
+            }
+        }
+
+        assertEquals(10, summary.keys().size());
+        assertTrue(summary.keys().containsAll(Set.of("hot1", "hot2")));
+    }
+
+    @Test
+    void clearForgetsEveryKey() {
+        SpaceSaving summary = new SpaceSaving(2);
+        add(summary, "a", 4);
+        add(summary, "b", 4);
+        summary.clear();
+
+        summary.add("c");
+        summary.add("d");
+        assertEquals(Set.of("c", "d"), summary.keys());
+    }
+
+    private static void add(SpaceSaving summary, String key, int times) {
+        for (int i = 0; i < times; i++) {
+            summary.add(key);
+        }
+    }
+}